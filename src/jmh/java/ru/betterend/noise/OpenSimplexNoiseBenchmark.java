@@ -0,0 +1,81 @@
+package ru.betterend.noise;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of single 2D and 3D noise samples, scalar calls and batched calls over the same random points.
+ * Batch sizes range from a few columns to whole chunk sections, results are times of a whole batch
+ * (operations per invocation can't depend on a parameter), divide them by count to get sample cost.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OpenSimplexNoiseBenchmark {
+	@Param({ "16", "256", "4096" })
+	private int count;
+	
+	private double[] x;
+	private double[] y;
+	private double[] z;
+	private double[] out;
+	private OpenSimplexNoise noise;
+	
+	@Setup
+	public void setup() {
+		x = new double[count];
+		y = new double[count];
+		z = new double[count];
+		out = new double[count];
+		Random random = new Random(0);
+		for (int i = 0; i < count; i++) {
+			x[i] = random.nextDouble() * 1000 - 500;
+			y[i] = random.nextDouble() * 1000 - 500;
+			z[i] = random.nextDouble() * 1000 - 500;
+		}
+		noise = new OpenSimplexNoise(1234);
+	}
+	
+	@Benchmark
+	public double[] scalar2D() {
+		for (int i = 0; i < count; i++) {
+			out[i] = noise.eval(x[i], y[i]);
+		}
+		return out;
+	}
+	
+	@Benchmark
+	public double[] batched2D() {
+		noise.eval(x, y, out, count);
+		return out;
+	}
+	
+	@Benchmark
+	public double[] scalar3D() {
+		for (int i = 0; i < count; i++) {
+			out[i] = noise.eval(x[i], y[i], z[i]);
+		}
+		return out;
+	}
+	
+	@Benchmark
+	public double[] batched3D() {
+		noise.eval(x, y, z, out, count);
+		return out;
+	}
+}
@@ -0,0 +1,76 @@
+package ru.betterend.noise;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * Cost of single Voronoi noise queries: distance sample, nearest cell positions with {@link VoronoiNoise#getPos}
+ * (allocates block positions) and the same cells written into a reused array with {@link VoronoiNoise#getCells}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VoronoiNoiseBenchmark {
+	private static final int COUNT = 1024;
+	
+	private final double[] x = new double[COUNT];
+	private final double[] y = new double[COUNT];
+	private final double[] z = new double[COUNT];
+	private final double[] cells = new double[6];
+	private VoronoiNoise noise;
+	
+	@Setup
+	public void setup() {
+		Random random = new Random(0);
+		for (int i = 0; i < COUNT; i++) {
+			x[i] = random.nextDouble() * 1000 - 500;
+			y[i] = random.nextDouble() * 1000 - 500;
+			z[i] = random.nextDouble() * 1000 - 500;
+		}
+		noise = new VoronoiNoise(1234);
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void sample(Blackhole blackhole) {
+		for (int i = 0; i < COUNT; i++) {
+			blackhole.consume(noise.sample(x[i], y[i], z[i]));
+		}
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void getPos(Blackhole blackhole) {
+		for (int i = 0; i < COUNT; i++) {
+			BlockPos[] pos = noise.getPos(x[i], y[i], z[i], 1);
+			blackhole.consume(pos);
+		}
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void getCells(Blackhole blackhole) {
+		for (int i = 0; i < COUNT; i++) {
+			blackhole.consume(noise.getCells(x[i], y[i], z[i], cells));
+		}
+		blackhole.consume(cells);
+	}
+}
@@ -0,0 +1,90 @@
+package ru.betterend.util.sdf;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.minecraft.client.util.math.Vector3f;
+import ru.betterend.util.MHelper;
+import ru.betterend.util.sdf.operator.SDFRotation;
+import ru.betterend.util.sdf.operator.SDFSmoothUnion;
+import ru.betterend.util.sdf.operator.SDFTranslate;
+import ru.betterend.util.sdf.operator.SDFUnion;
+import ru.betterend.util.sdf.primitive.SDFCappedCone;
+import ru.betterend.util.sdf.primitive.SDFSphere;
+
+/**
+ * Distance evaluation cost of tree and compiled SDF forms over the whole box of a giant ice star like shape
+ * (union of rotated cones around a sphere), both forms use bounding box culling.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SDFEvaluationBenchmark {
+	private static final int SIZE = 32;
+	private static final int POINTS = (SIZE * 2 + 1) * (SIZE * 2 + 1) * (SIZE * 2 + 1);
+	
+	private SDF tree;
+	private SDF compiled;
+	
+	@Setup
+	public void setup() {
+		int count = 30;
+		float size = 28;
+		SDF spike = new SDFCappedCone().setRadius1(3 + (size - 5) * 0.2F).setRadius2(0).setHeight(size);
+		spike = new SDFTranslate().setTranslate(0, size - 0.5F, 0).setSource(spike);
+		SDF sdf = new SDFSphere().setRadius(size * 0.3F);
+		for (int i = 0; i < count; i++) {
+			float y = 1F - (i / (count - 1F)) * 2F;
+			float radius = (float) Math.sqrt(1F - y * y);
+			float theta = MHelper.PHI * i;
+			Vector3f point = new Vector3f((float) Math.cos(theta) * radius, y, (float) Math.sin(theta) * radius);
+			float angle = MHelper.angle(Vector3f.POSITIVE_Y, point);
+			if (angle > 0.01F && angle < 3.14F) {
+				Vector3f axis = MHelper.normalize(MHelper.cross(Vector3f.POSITIVE_Y, point));
+				sdf = new SDFUnion().setSourceA(sdf).setSourceB(new SDFRotation().setRotation(axis, angle).setSource(spike));
+			}
+		}
+		tree = new SDFSmoothUnion().setRadius(3).setSourceA(sdf).setSourceB(new SDFSphere().setRadius(size * 0.4F));
+		tree.getBoundingBox();
+		compiled = tree.compile();
+		compiled.getBoundingBox();
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(POINTS)
+	public float tree() {
+		return evaluate(tree);
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(POINTS)
+	public float compiled() {
+		return evaluate(compiled);
+	}
+	
+	private static float evaluate(SDF sdf) {
+		float sum = 0;
+		for (int x = -SIZE; x <= SIZE; x++) {
+			for (int y = -SIZE; y <= SIZE; y++) {
+				for (int z = -SIZE; z <= SIZE; z++) {
+					sum += sdf.getDistance(x, y, z);
+				}
+			}
+		}
+		return sum;
+	}
+}
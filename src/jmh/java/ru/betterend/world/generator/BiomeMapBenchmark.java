@@ -0,0 +1,87 @@
+package ru.betterend.world.generator;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.minecraft.Bootstrap;
+import net.minecraft.util.registry.BuiltinRegistries;
+import net.minecraft.util.registry.RegistryKey;
+import net.minecraft.world.biome.Biome;
+import net.minecraft.world.biome.BiomeKeys;
+import ru.betterend.world.biome.EndBiome;
+
+/**
+ * Biome lookups per second for 4x4 batches of biome source, each batch covers one chunk. Point benchmark
+ * samples every cell with its own {@link BiomeMap#getBiome(int, int)} call, batch benchmark fills all
+ * cells with one {@link BiomeMap#fillBiomes(int, int, int, int, int, EndBiome[])} call. Main land biome
+ * has an edge, so edge checks of neighbour cells share raw biomes in batches.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BiomeMapBenchmark {
+	private static final int BATCH = 16;
+	private static final int ROW = 256;
+	
+	private final EndBiome[] biomes = new EndBiome[BATCH];
+	private BiomeMap map;
+	private int chunk;
+	
+	@Setup
+	public void setup() {
+		Bootstrap.initialize();
+		EndBiome land = makeBiome(BiomeKeys.THE_END);
+		EndBiome edge = makeBiome(BiomeKeys.END_MIDLANDS);
+		land.setEdge(edge);
+		land.setEdgeSize(16);
+		
+		BiomePicker picker = new BiomePicker();
+		picker.addBiome(land);
+		picker.addBiome(makeBiome(BiomeKeys.END_HIGHLANDS));
+		picker.addBiome(makeBiome(BiomeKeys.SMALL_END_ISLANDS));
+		picker.rebuild();
+		
+		map = new BiomeMap(0, 256, picker);
+		chunk = 0;
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public EndBiome[] pointLookups() {
+		int startX = (chunk % ROW) << 4;
+		int startZ = (chunk / ROW) << 4;
+		for (int index = 0; index < BATCH; index++) {
+			biomes[index] = map.getBiome(startX + ((index & 3) << 2), startZ + ((index >> 2) << 2));
+		}
+		chunk++;
+		return biomes;
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public EndBiome[] batchLookups() {
+		int startX = (chunk % ROW) << 4;
+		int startZ = (chunk / ROW) << 4;
+		map.fillBiomes(startX, startZ, 4, 4, 4, biomes);
+		chunk++;
+		return biomes;
+	}
+	
+	private static EndBiome makeBiome(RegistryKey<Biome> key) {
+		return new EndBiome(key.getValue(), BuiltinRegistries.BIOME.get(key), 1F, 1F, true);
+	}
+}
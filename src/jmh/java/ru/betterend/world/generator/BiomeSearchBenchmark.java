@@ -0,0 +1,85 @@
+package ru.betterend.world.generator;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.minecraft.Bootstrap;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.registry.BuiltinRegistries;
+import net.minecraft.world.biome.Biome;
+import ru.betterend.registry.EndBiomes;
+
+/**
+ * Time to find each registered End biome from the spawn platform with {@link BiomeSearch}, like locate
+ * command does. Every iteration uses a new biome source, so biome map caches are cold.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BiomeSearchBenchmark {
+	private static final BlockPos SPAWN = new BlockPos(100, 64, 0);
+	private static final int RADIUS = 8000;
+	private static final long SEED = 0;
+	
+	@Param({
+		"minecraft:the_end",
+		"minecraft:end_midlands",
+		"minecraft:end_highlands",
+		"minecraft:end_barrens",
+		"minecraft:small_end_islands",
+		"betterend:foggy_mushroomland",
+		"betterend:chorus_forest",
+		"betterend:dust_wastelands",
+		"betterend:megalake",
+		"betterend:megalake_grove",
+		"betterend:crystal_mountains",
+		"betterend:painted_mountains",
+		"betterend:shadow_forest",
+		"betterend:amber_land",
+		"betterend:blossoming_spires",
+		"betterend:sulphur_springs",
+		"betterend:umbrella_jungle",
+		"betterend:ice_starfield"
+	})
+	private String biome;
+	
+	private Biome target;
+	private BetterEndBiomeSource source;
+	
+	@Setup
+	public void setup() {
+		Bootstrap.initialize();
+		EndBiomes.register();
+		GeneratorOptions.init();
+		TerrainGenerator.init();
+		TerrainGenerator.initNoise(SEED);
+		target = BuiltinRegistries.BIOME.get(new Identifier(biome));
+	}
+	
+	@Setup(Level.Iteration)
+	public void makeSource() {
+		source = new BetterEndBiomeSource(BuiltinRegistries.BIOME, SEED);
+	}
+	
+	@Benchmark
+	public BlockPos timeToFind() throws InterruptedException, ExecutionException {
+		return BiomeSearch.start(source, SPAWN, RADIUS, (candidate) -> candidate == target).getResult().get();
+	}
+}
@@ -0,0 +1,69 @@
+package ru.betterend.world.generator;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Terrain density sampling cost per noise column. Chunk benchmark samples 5x5 columns of one chunk like noise
+ * chunk generator does (neighbour chunks share border columns and island tiles), scattered benchmark samples
+ * random far columns, so column and island caches always miss.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TerrainDensityBenchmark {
+	private static final int COLUMNS = 5;
+	
+	private final double[] buffer = new double[33];
+	private Random random;
+	private int chunkX;
+	private int chunkZ;
+	
+	@Setup
+	public void setup() {
+		TerrainGenerator.initNoise(0);
+		random = new Random(0);
+		chunkX = 0;
+		chunkZ = 0;
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(COLUMNS * COLUMNS)
+	public double[] chunkColumns() {
+		int startX = chunkX << 2;
+		int startZ = chunkZ << 2;
+		for (int x = 0; x < COLUMNS; x++) {
+			for (int z = 0; z < COLUMNS; z++) {
+				TerrainGenerator.fillTerrainDensity(buffer, startX + x, startZ + z);
+			}
+		}
+		if (++chunkX > 64) {
+			chunkX = 0;
+			chunkZ++;
+		}
+		return buffer;
+	}
+	
+	@Benchmark
+	public double[] scatteredColumn() {
+		int x = random.nextInt(1 << 20) - (1 << 19);
+		int z = random.nextInt(1 << 20) - (1 << 19);
+		TerrainGenerator.fillTerrainDensity(buffer, x, z);
+		return buffer;
+	}
+}
@@ -0,0 +1,74 @@
+package ru.betterend.world.generator;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Terrain density throughput in chunks per second with 1, 4 and 16 worldgen threads. All threads share one
+ * seeded generator and take chunks from a shared counter in rows, like workers generating an area around
+ * players, so each chunk is sampled once (5x5 noise columns) and threads share island caches.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TerrainThroughputBenchmark {
+	private static final int COLUMNS = 5;
+	private static final int ROW = 256;
+	
+	private final AtomicInteger chunks = new AtomicInteger();
+	
+	@Setup
+	public void setup() {
+		TerrainGenerator.initNoise(0);
+	}
+	
+	@Benchmark
+	@Threads(1)
+	public double[] chunks1Thread(Worker worker) {
+		return generateChunk(worker);
+	}
+	
+	@Benchmark
+	@Threads(4)
+	public double[] chunks4Threads(Worker worker) {
+		return generateChunk(worker);
+	}
+	
+	@Benchmark
+	@Threads(16)
+	public double[] chunks16Threads(Worker worker) {
+		return generateChunk(worker);
+	}
+	
+	private double[] generateChunk(Worker worker) {
+		int index = chunks.getAndIncrement();
+		int startX = (index % ROW) << 2;
+		int startZ = (index / ROW) << 2;
+		for (int x = 0; x < COLUMNS; x++) {
+			for (int z = 0; z < COLUMNS; z++) {
+				TerrainGenerator.fillTerrainDensity(worker.buffer, startX + x, startZ + z);
+			}
+		}
+		return worker.buffer;
+	}
+	
+	@State(Scope.Thread)
+	public static class Worker {
+		final double[] buffer = new double[33];
+	}
+}
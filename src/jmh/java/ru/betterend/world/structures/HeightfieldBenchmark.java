@@ -0,0 +1,123 @@
+package ru.betterend.world.structures;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.Maps;
+
+import net.minecraft.util.math.BlockBox;
+import net.minecraft.util.math.MathHelper;
+import ru.betterend.noise.OpenSimplexNoise;
+import ru.betterend.util.MHelper;
+import ru.betterend.world.structures.Heightfield.ColumnHeight;
+
+/**
+ * Height clamp cost of one terrain piece (all columns of a round mountain or lake piece, chunk by chunk),
+ * before and after {@link Heightfield}: boxed hash map cache with kernel weights computed per tap against
+ * dense grid with precomputed kernel. Column heights use piece noise only, world lookups are left out, so
+ * both variants call the height function for the same columns. In game the whole generate() time of the
+ * pieces is reported by the generation profiler (piece/MountainPiece, piece/LakePiece etc.).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeightfieldBenchmark {
+	private static final int RADIUS = 64;
+	private static final int KERNEL = 8;
+	private static final BlockBox BOX = new BlockBox(-RADIUS, 0, -RADIUS, RADIUS, 255, RADIUS);
+	
+	private OpenSimplexNoise noise;
+	
+	@Setup
+	public void setup() {
+		noise = new OpenSimplexNoise(1234);
+	}
+	
+	@Benchmark
+	public float mapPiece() {
+		Map<Integer, Integer> heightmap = Maps.newHashMap();
+		ColumnHeight heights = (x, z) -> {
+			int p = ((x & 2047) << 11) | (z & 2047);
+			int h = heightmap.getOrDefault(p, Integer.MIN_VALUE);
+			if (h > Integer.MIN_VALUE) {
+				return h;
+			}
+			h = getHeight(x, z);
+			heightmap.put(p, h);
+			return h;
+		};
+		float sum = 0;
+		for (int cx = BOX.minX >> 4; cx <= BOX.maxX >> 4; cx++) {
+			for (int cz = BOX.minZ >> 4; cz <= BOX.maxZ >> 4; cz++) {
+				for (int x = cx << 4; x < (cx << 4) + 16; x++) {
+					for (int z = cz << 4; z < (cz << 4) + 16; z++) {
+						if (x * x + z * z < RADIUS * RADIUS) {
+							sum += getHeightClamp(heights, x, z);
+						}
+					}
+				}
+			}
+		}
+		return sum;
+	}
+	
+	@Benchmark
+	public float heightfieldPiece() {
+		Heightfield heightfield = new Heightfield(BOX, KERNEL);
+		ColumnHeight heights = this::getHeight;
+		float sum = 0;
+		for (int cx = BOX.minX >> 4; cx <= BOX.maxX >> 4; cx++) {
+			for (int cz = BOX.minZ >> 4; cz <= BOX.maxZ >> 4; cz++) {
+				for (int x = cx << 4; x < (cx << 4) + 16; x++) {
+					for (int z = cz << 4; z < (cz << 4) + 16; z++) {
+						if (x * x + z * z < RADIUS * RADIUS) {
+							sum += heightfield.getHeightClamp(x, z, heights);
+						}
+					}
+				}
+				heightfield.onChunkGenerated();
+			}
+		}
+		return sum;
+	}
+	
+	private int getHeight(int x, int z) {
+		int h = MHelper.floor(noise.eval(x * 0.01, z * 0.01) * noise.eval(x * 0.002, z * 0.002) * 8 + 8);
+		return h < 0 ? 0 : h;
+	}
+	
+	/**
+	 * Height clamp as it was computed by pieces before {@link Heightfield}.
+	 */
+	private static float getHeightClamp(ColumnHeight heights, int posX, int posZ) {
+		float height = 0;
+		float max = 0;
+		for (int x = -KERNEL; x <= KERNEL; x++) {
+			int x2 = x * x;
+			for (int z = -KERNEL; z <= KERNEL; z++) {
+				int z2 = z * z;
+				float mult = 1 - (float) Math.sqrt(x2 + z2) / KERNEL;
+				if (mult > 0) {
+					max += mult;
+					height += heights.getHeight(posX + x, posZ + z) * mult;
+				}
+			}
+		}
+		height /= max;
+		return MathHelper.clamp(height / KERNEL, 0, 1);
+	}
+}
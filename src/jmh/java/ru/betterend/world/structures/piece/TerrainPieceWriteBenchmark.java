@@ -0,0 +1,152 @@
+package ru.betterend.world.structures.piece;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.minecraft.Bootstrap;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.BlockPos.Mutable;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.chunk.ChunkStatus;
+import net.minecraft.world.chunk.ProtoChunk;
+import net.minecraft.world.chunk.UpgradeData;
+import ru.betterend.noise.OpenSimplexNoise;
+import ru.betterend.util.ChunkWriter;
+import ru.betterend.util.MHelper;
+
+/**
+ * Block writes of one chunk of Crystal Mountains and Megalake pieces, through {@link ChunkWriter} and through
+ * per-block {@link ProtoChunk#setBlockState(BlockPos, BlockState, boolean)} calls as pieces did before.
+ * Column spans follow piece formulas (mountain columns up to 40 blocks above island surface, lake columns
+ * carved down to 20 blocks with water below sea level and a shore layer), each invocation gets a new proto
+ * chunk with island terrain at features status, so heightmaps are updated like during generation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TerrainPieceWriteBenchmark {
+	private static final int SURFACE = 60;
+	private static final int MOUNTAIN_HEIGHT = 40;
+	private static final int LAKE_DEPTH = 20;
+	private static final BlockState STONE = Blocks.END_STONE.getDefaultState();
+	private static final BlockState COVER = Blocks.GRASS_BLOCK.getDefaultState();
+	private static final BlockState SHORE = Blocks.SAND.getDefaultState();
+	private static final BlockState WATER = Blocks.WATER.getDefaultState();
+	private static final BlockState AIR = Blocks.AIR.getDefaultState();
+	
+	private final int[] heights = new int[256];
+	private final boolean[] covers = new boolean[256];
+	private ProtoChunk chunk;
+	
+	@Setup(Level.Trial)
+	public void setup() {
+		Bootstrap.initialize();
+		OpenSimplexNoise noise = new OpenSimplexNoise(1234);
+		Random random = new Random(0);
+		for (int index = 0; index < 256; index++) {
+			int x = index & 15;
+			int z = index >> 4;
+			float dist = 1 - MHelper.lengthSqr(x - 8, z - 8) / 128F;
+			float height = dist * (float) (noise.eval(x * 0.05, z * 0.05) * 0.3F + 0.7F);
+			heights[index] = MHelper.floor(height * MOUNTAIN_HEIGHT);
+			covers[index] = random.nextBoolean();
+		}
+	}
+	
+	@Setup(Level.Invocation)
+	public void makeChunk() {
+		chunk = new ProtoChunk(new ChunkPos(0, 0), UpgradeData.NO_UPGRADE_DATA);
+		chunk.setStatus(ChunkStatus.FEATURES);
+		Mutable pos = new Mutable();
+		for (int x = 0; x < 16; x++) {
+			for (int z = 0; z < 16; z++) {
+				for (int y = 30; y <= SURFACE; y++) {
+					chunk.setBlockState(pos.set(x, y, z), STONE, false);
+				}
+			}
+		}
+	}
+	
+	@Benchmark
+	public ProtoChunk mountainPerBlock() {
+		Mutable pos = new Mutable();
+		for (int index = 0; index < 256; index++) {
+			pos.set(index & 15, 0, index >> 4);
+			int maxY = SURFACE + heights[index];
+			for (int y = SURFACE; y < maxY; y++) {
+				pos.setY(y);
+				chunk.setBlockState(pos, covers[index] && y == maxY - 1 ? COVER : STONE, false);
+			}
+		}
+		return chunk;
+	}
+	
+	@Benchmark
+	public ProtoChunk mountainWriter() {
+		ChunkWriter writer = new ChunkWriter(chunk);
+		for (int index = 0; index < 256; index++) {
+			int x = index & 15;
+			int z = index >> 4;
+			int maxY = SURFACE + heights[index];
+			writer.fillColumn(x, z, SURFACE, maxY, STONE);
+			if (covers[index] && maxY > SURFACE) {
+				writer.setBlockState(x, maxY - 1, z, COVER);
+			}
+		}
+		writer.finish();
+		return chunk;
+	}
+	
+	@Benchmark
+	public ProtoChunk lakePerBlock() {
+		Mutable pos = new Mutable();
+		for (int index = 0; index < 256; index++) {
+			pos.set(index & 15, 0, index >> 4);
+			int minY = SURFACE - heights[index] * LAKE_DEPTH / MOUNTAIN_HEIGHT;
+			for (int y = SURFACE; y >= minY; y--) {
+				pos.setY(y);
+				chunk.setBlockState(pos, y > 56 ? AIR : WATER, false);
+			}
+			for (int i = 1; i <= 2; i++) {
+				pos.setY(minY - i);
+				chunk.setBlockState(pos, SHORE, false);
+			}
+		}
+		return chunk;
+	}
+	
+	@Benchmark
+	public ProtoChunk lakeWriter() {
+		ChunkWriter writer = new ChunkWriter(chunk);
+		for (int index = 0; index < 256; index++) {
+			int x = index & 15;
+			int z = index >> 4;
+			int minY = SURFACE - heights[index] * LAKE_DEPTH / MOUNTAIN_HEIGHT;
+			for (int y = SURFACE; y >= minY; y--) {
+				writer.setBlockState(x, y, z, y > 56 ? AIR : WATER);
+			}
+			for (int i = 1; i <= 2; i++) {
+				writer.setBlockState(x, minY - i, z, SHORE);
+			}
+		}
+		writer.finish();
+		return chunk;
+	}
+}
@@ -18,6 +18,7 @@ import ru.betterend.recipe.SmithingRecipes;
 import ru.betterend.registry.EndBiomes;
 import ru.betterend.registry.EndBlockEntities;
 import ru.betterend.registry.EndBlocks;
+import ru.betterend.registry.EndCommands;
 import ru.betterend.registry.EndEntities;
 import ru.betterend.registry.EndFeatures;
 import ru.betterend.registry.EndItems;
@@ -27,6 +28,7 @@ import ru.betterend.registry.EndTags;
 import ru.betterend.util.BonemealUtil;
 import ru.betterend.util.Logger;
 import ru.betterend.world.generator.BetterEndBiomeSource;
+import ru.betterend.world.generator.GenerationProfiler;
 import ru.betterend.world.generator.GeneratorOptions;
 import ru.betterend.world.generator.TerrainGenerator;
 import ru.betterend.world.surface.SurfaceBuilders;
@@ -54,10 +56,12 @@ public class BetterEnd implements ModInitializer {
 		SmithingRecipes.register();
 		InfusionRecipes.register();
 		EndStructures.register();
+		EndCommands.register();
 		Integrations.register();
 		BonemealUtil.init();
 		TerrainGenerator.init();
 		GeneratorOptions.init();
+		GenerationProfiler.init();
 		
 		if (hasGuideBook()) {
 			GuideBook.register();
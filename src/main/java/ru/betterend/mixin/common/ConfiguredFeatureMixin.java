@@ -0,0 +1,39 @@
+package ru.betterend.mixin.common;
+
+import java.util.Random;
+
+import org.spongepowered.asm.mixin.Final;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.StructureWorldAccess;
+import net.minecraft.world.gen.chunk.ChunkGenerator;
+import net.minecraft.world.gen.feature.ConfiguredFeature;
+import net.minecraft.world.gen.feature.Feature;
+import ru.betterend.world.features.DefaultFeature;
+import ru.betterend.world.generator.GenerationProfiler;
+
+@Mixin(ConfiguredFeature.class)
+public abstract class ConfiguredFeatureMixin {
+	@Shadow
+	@Final
+	public Feature<?> feature;
+	
+	@Inject(method = "generate", at = @At("HEAD"))
+	private void beBeginFeature(StructureWorldAccess world, ChunkGenerator generator, Random random, BlockPos pos, CallbackInfoReturnable<Boolean> info) {
+		if (feature instanceof DefaultFeature) {
+			GenerationProfiler.beginMethod(this, feature);
+		}
+	}
+	
+	@Inject(method = "generate", at = @At("RETURN"))
+	private void beEndFeature(StructureWorldAccess world, ChunkGenerator generator, Random random, BlockPos pos, CallbackInfoReturnable<Boolean> info) {
+		if (feature instanceof DefaultFeature) {
+			GenerationProfiler.endMethod(this);
+		}
+	}
+}
@@ -13,8 +13,11 @@ import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 import net.fabricmc.loader.api.FabricLoader;
 import net.minecraft.resource.ServerResourceManager;
 import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.WorldSavePath;
+import ru.betterend.BetterEnd;
 import ru.betterend.recipe.EndRecipeManager;
 import ru.betterend.registry.EndBiomes;
+import ru.betterend.world.generator.BiomeChunkStorage;
 
 @Mixin(MinecraftServer.class)
 public class MinecraftServerMixin {
@@ -26,6 +29,17 @@ public class MinecraftServerMixin {
 		beInjectRecipes();
 	}
 
+	@Inject(method = "loadWorld", at = @At(value = "HEAD"))
+	private void beBeforeLoadWorld(CallbackInfo info) {
+		MinecraftServer server = (MinecraftServer) (Object) this;
+		BiomeChunkStorage.setSaveDirectory(server.getSavePath(WorldSavePath.ROOT).resolve(BetterEnd.MOD_ID).resolve("biome_cache"));
+	}
+	
+	@Inject(method = "shutdown", at = @At(value = "RETURN"))
+	private void beOnShutdown(CallbackInfo info) {
+		BiomeChunkStorage.closeAll();
+	}
+	
 	@Inject(method = "loadWorld", at = @At(value = "RETURN"), cancellable = true)
 	private void beOnLoadWorld(CallbackInfo info) {
 		beInjectRecipes();
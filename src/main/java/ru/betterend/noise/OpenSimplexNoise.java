@@ -33,6 +33,14 @@ public class OpenSimplexNoise {
 	private short[] perm;
 	private short[] permGradIndex3D;
 
+	// Gradient components for the last permutation step, so extrapolation
+	// doesn't need to index byte gradient arrays.
+	private final double[] gradX2D = new double[256];
+	private final double[] gradY2D = new double[256];
+	private final double[] gradX3D = new double[256];
+	private final double[] gradY3D = new double[256];
+	private final double[] gradZ3D = new double[256];
+
 	public OpenSimplexNoise() {
 		this(DEFAULT_SEED);
 	}
@@ -46,6 +54,7 @@ public class OpenSimplexNoise {
 			// precompute modulo array.
 			permGradIndex3D[i] = (short) ((perm[i] % (gradients3D.length / 3)) * 3);
 		}
+		initGradients();
 	}
 
 	// Initializes the class using a permutation array generated from a 64-bit
@@ -71,6 +80,34 @@ public class OpenSimplexNoise {
 			permGradIndex3D[i] = (short) ((perm[i] % (gradients3D.length / 3)) * 3);
 			source[r] = source[i];
 		}
+		initGradients();
+	}
+
+	private void initGradients() {
+		for (int i = 0; i < 256; i++) {
+			int index = perm[i] & 0x0E;
+			gradX2D[i] = gradients2D[index];
+			gradY2D[i] = gradients2D[index + 1];
+			index = permGradIndex3D[i];
+			gradX3D[i] = gradients3D[index];
+			gradY3D[i] = gradients3D[index + 1];
+			gradZ3D[i] = gradients3D[index + 2];
+		}
+	}
+
+	// Batched 2D OpenSimplex Noise, out[i] = eval(x[i], y[i]) for first count points.
+	// Doesn't allocate, so it can be used in per-block loops with reused arrays.
+	public void eval(double[] x, double[] y, double[] out, int count) {
+		for (int i = 0; i < count; i++) {
+			out[i] = eval(x[i], y[i]);
+		}
+	}
+
+	// Batched 3D OpenSimplex Noise, out[i] = eval(x[i], y[i], z[i]) for first count points.
+	public void eval(double[] x, double[] y, double[] z, double[] out, int count) {
+		for (int i = 0; i < count; i++) {
+			out[i] = eval(x[i], y[i], z[i]);
+		}
 	}
 
 	// 2D OpenSimplex Noise.
@@ -2137,13 +2174,13 @@ public class OpenSimplexNoise {
 	}
 
 	private double extrapolate(int xsb, int ysb, double dx, double dy) {
-		int index = perm[(perm[xsb & 0xFF] + ysb) & 0xFF] & 0x0E;
-		return gradients2D[index] * dx + gradients2D[index + 1] * dy;
+		int index = (perm[xsb & 0xFF] + ysb) & 0xFF;
+		return gradX2D[index] * dx + gradY2D[index] * dy;
 	}
 
 	private double extrapolate(int xsb, int ysb, int zsb, double dx, double dy, double dz) {
-		int index = permGradIndex3D[(perm[(perm[xsb & 0xFF] + ysb) & 0xFF] + zsb) & 0xFF];
-		return gradients3D[index] * dx + gradients3D[index + 1] * dy + gradients3D[index + 2] * dz;
+		int index = (perm[(perm[xsb & 0xFF] + ysb) & 0xFF] + zsb) & 0xFF;
+		return gradX3D[index] * dx + gradY3D[index] * dy + gradZ3D[index] * dz;
 	}
 
 	private double extrapolate(int xsb, int ysb, int zsb, int wsb, double dx, double dy, double dz, double dw) {
@@ -1,28 +1,46 @@
 package ru.betterend.noise;
 
-import java.util.Random;
-
 import net.minecraft.util.math.BlockPos;
 import ru.betterend.util.MHelper;
 
+/**
+ * Cellular noise with one feature point per unit cell. Feature points are computed from cell hash with
+ * inlined {@link java.util.Random} LCG (same values as Random seeded with the hash), so the noise has
+ * no shared state and can be used from several threads.
+ */
 public class VoronoiNoise {
-	private static final Random RANDOM = new Random();
+	private static final long MULTIPLIER = 0x5DEECE66DL;
+	private static final long ADDEND = 0xBL;
+	private static final long MASK = (1L << 48) - 1;
+	private static final float FLOAT_UNIT = 1F / (1 << 24);
 	final int seed;
 	
 	public VoronoiNoise() {
 		this(0);
 	}
-
+	
 	public VoronoiNoise(int seed) {
 		this.seed = seed;
 	}
 	
-	private int getSeed(int x, int y, int z) {
+	int getSeed(int x, int y, int z) {
 		int h = seed + x * 374761393 + y * 668265263 + z;
 		h = (h ^ (h >> 13)) * 1274126177;
 		return h ^ (h >> 16);
 	}
-
+	
+	static long initRandom(int seed) {
+		return (seed ^ MULTIPLIER) & MASK;
+	}
+	
+	static long nextRandom(long random) {
+		return (random * MULTIPLIER + ADDEND) & MASK;
+	}
+	
+	static float getFloat(long random) {
+		return (int) (random >>> 24) * FLOAT_UNIT;
+	}
+	
 	public double sample(double x, double y, double z) {
 		int ix = MHelper.floor(x);
 		int iy = MHelper.floor(y);
@@ -37,10 +55,12 @@ public class VoronoiNoise {
 		for (int pox = -1; pox < 2; pox++) {
 			for (int poy = -1; poy < 2; poy++) {
 				for (int poz = -1; poz < 2; poz++) {
-					RANDOM.setSeed(getSeed(pox + ix, poy + iy, poz + iz));
-					float pointX = pox + RANDOM.nextFloat();
-					float pointY = poy + RANDOM.nextFloat();
-					float pointZ = poz + RANDOM.nextFloat();
+					long random = nextRandom(initRandom(getSeed(pox + ix, poy + iy, poz + iz)));
+					float pointX = pox + getFloat(random);
+					random = nextRandom(random);
+					float pointY = poy + getFloat(random);
+					random = nextRandom(random);
+					float pointZ = poz + getFloat(random);
 					float d2 = MHelper.lengthSqr(pointX - px, pointY - py, pointZ - pz);
 					if (d2 < d) {
 						d = d2;
@@ -52,6 +72,123 @@ public class VoronoiNoise {
 		return Math.sqrt(d);
 	}
 	
+	/**
+	 * 2D variant of {@link #sample(double, double, double)}, feature points are taken from cells with y = 0.
+	 */
+	public double sample(double x, double z) {
+		int ix = MHelper.floor(x);
+		int iz = MHelper.floor(z);
+		
+		float px = (float) (x - ix);
+		float pz = (float) (z - iz);
+		
+		float d = 10;
+		
+		for (int pox = -1; pox < 2; pox++) {
+			for (int poz = -1; poz < 2; poz++) {
+				long random = nextRandom(initRandom(getSeed(pox + ix, 0, poz + iz)));
+				float pointX = pox + getFloat(random);
+				random = nextRandom(nextRandom(random));
+				float pointZ = poz + getFloat(random);
+				float d2 = MHelper.lengthSqr(pointX - px, pointZ - pz);
+				if (d2 < d) {
+					d = d2;
+				}
+			}
+		}
+		
+		return Math.sqrt(d);
+	}
+	
+	/**
+	 * Writes nearest feature point into out[0..2] and second nearest into out[3..5] (in noise coordinates),
+	 * returns distance to the nearest point.
+	 */
+	public double getCells(double x, double y, double z, double[] out) {
+		int ix = MHelper.floor(x);
+		int iy = MHelper.floor(y);
+		int iz = MHelper.floor(z);
+		
+		float px = (float) (x - ix);
+		float py = (float) (y - iy);
+		float pz = (float) (z - iz);
+		
+		float d = 10;
+		float d2nd = 10;
+		
+		for (int pox = -1; pox < 2; pox++) {
+			for (int poy = -1; poy < 2; poy++) {
+				for (int poz = -1; poz < 2; poz++) {
+					long random = nextRandom(initRandom(getSeed(pox + ix, poy + iy, poz + iz)));
+					float pointX = pox + getFloat(random);
+					random = nextRandom(random);
+					float pointY = poy + getFloat(random);
+					random = nextRandom(random);
+					float pointZ = poz + getFloat(random);
+					float d2 = MHelper.lengthSqr(pointX - px, pointY - py, pointZ - pz);
+					if (d2 < d) {
+						d2nd = d;
+						d = d2;
+						out[3] = out[0];
+						out[4] = out[1];
+						out[5] = out[2];
+						out[0] = ix + (double) pointX;
+						out[1] = iy + (double) pointY;
+						out[2] = iz + (double) pointZ;
+					}
+					else if (d2 < d2nd) {
+						d2nd = d2;
+						out[3] = ix + (double) pointX;
+						out[4] = iy + (double) pointY;
+						out[5] = iz + (double) pointZ;
+					}
+				}
+			}
+		}
+		
+		return Math.sqrt(d);
+	}
+	
+	/**
+	 * 2D variant of {@link #getCells(double, double, double, double[])}, writes nearest feature point into out[0..1]
+	 * and second nearest into out[2..3], returns distance to the nearest point.
+	 */
+	public double getCells(double x, double z, double[] out) {
+		int ix = MHelper.floor(x);
+		int iz = MHelper.floor(z);
+		
+		float px = (float) (x - ix);
+		float pz = (float) (z - iz);
+		
+		float d = 10;
+		float d2nd = 10;
+		
+		for (int pox = -1; pox < 2; pox++) {
+			for (int poz = -1; poz < 2; poz++) {
+				long random = nextRandom(initRandom(getSeed(pox + ix, 0, poz + iz)));
+				float pointX = pox + getFloat(random);
+				random = nextRandom(nextRandom(random));
+				float pointZ = poz + getFloat(random);
+				float d2 = MHelper.lengthSqr(pointX - px, pointZ - pz);
+				if (d2 < d) {
+					d2nd = d;
+					d = d2;
+					out[2] = out[0];
+					out[3] = out[1];
+					out[0] = ix + (double) pointX;
+					out[1] = iz + (double) pointZ;
+				}
+				else if (d2 < d2nd) {
+					d2nd = d2;
+					out[2] = ix + (double) pointX;
+					out[3] = iz + (double) pointZ;
+				}
+			}
+		}
+		
+		return Math.sqrt(d);
+	}
+	
 	public BlockPos[] getPos(double x, double y, double z, double scale) {
 		int ix = MHelper.floor(x);
 		int iy = MHelper.floor(y);
@@ -72,10 +209,12 @@ public class VoronoiNoise {
 		for (int pox = -1; pox < 2; pox++) {
 			for (int poy = -1; poy < 2; poy++) {
 				for (int poz = -1; poz < 2; poz++) {
-					RANDOM.setSeed(getSeed(pox + ix, poy + iy, poz + iz));
-					float pointX = pox + RANDOM.nextFloat();
-					float pointY = poy + RANDOM.nextFloat();
-					float pointZ = poz + RANDOM.nextFloat();
+					long random = nextRandom(initRandom(getSeed(pox + ix, poy + iy, poz + iz)));
+					float pointX = pox + getFloat(random);
+					random = nextRandom(random);
+					float pointY = poy + getFloat(random);
+					random = nextRandom(random);
+					float pointZ = poz + getFloat(random);
 					float d2 = MHelper.lengthSqr(pointX - px, pointY - py, pointZ - pz);
 					if (d2 < d) {
 						d = d2;
@@ -0,0 +1,115 @@
+package ru.betterend.registry;
+
+import java.io.File;
+import java.util.List;
+import java.util.Locale;
+
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import com.mojang.brigadier.exceptions.DynamicCommandExceptionType;
+
+import net.fabricmc.fabric.api.command.v1.CommandRegistrationCallback;
+import net.minecraft.command.argument.IdentifierArgumentType;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.command.CommandManager;
+import net.minecraft.server.command.ServerCommandSource;
+import net.minecraft.text.TranslatableText;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.registry.Registry;
+import net.minecraft.world.biome.Biome;
+import net.minecraft.world.biome.source.BiomeSource;
+import ru.betterend.BetterEnd;
+import ru.betterend.util.MHelper;
+import ru.betterend.world.generator.BiomeSearch;
+import ru.betterend.world.generator.GenerationProfiler;
+import ru.betterend.world.generator.GenerationProfiler.Entry;
+
+public class EndCommands {
+	private static final DynamicCommandExceptionType UNKNOWN_BIOME = new DynamicCommandExceptionType((id) -> {
+		return new TranslatableText("command.betterend.locatebiome.unknown", id);
+	});
+	private static final int SEARCH_RADIUS = 6400;
+	private static final int PROFILER_LINES = 10;
+	
+	public static void register() {
+		CommandRegistrationCallback.EVENT.register((dispatcher, dedicated) -> {
+			dispatcher.register(CommandManager.literal(BetterEnd.MOD_ID)
+				.requires((source) -> source.hasPermissionLevel(2))
+				.then(CommandManager.literal("locatebiome")
+					.then(CommandManager.argument("biome", IdentifierArgumentType.identifier())
+						.executes((context) -> locateBiome(context.getSource(), IdentifierArgumentType.getIdentifier(context, "biome")))))
+				.then(CommandManager.literal("profiler")
+					.executes((context) -> showProfiler(context.getSource()))
+					.then(CommandManager.literal("start").executes((context) -> setProfiler(context.getSource(), true)))
+					.then(CommandManager.literal("stop").executes((context) -> setProfiler(context.getSource(), false)))
+					.then(CommandManager.literal("reset").executes((context) -> resetProfiler(context.getSource())))
+					.then(CommandManager.literal("dump").executes((context) -> dumpProfiler(context.getSource())))));
+		});
+	}
+	
+	/**
+	 * Searches biome on worker threads, result is sent to the source from server thread when search is finished.
+	 */
+	private static int locateBiome(ServerCommandSource source, Identifier id) throws CommandSyntaxException {
+		MinecraftServer server = source.getMinecraftServer();
+		Biome biome = server.getRegistryManager().get(Registry.BIOME_KEY).get(id);
+		if (biome == null) {
+			throw UNKNOWN_BIOME.create(id);
+		}
+		
+		BlockPos start = new BlockPos(source.getPosition());
+		BiomeSource biomeSource = source.getWorld().getChunkManager().getChunkGenerator().getBiomeSource();
+		source.sendFeedback(new TranslatableText("command.betterend.locatebiome.start", id), false);
+		BiomeSearch.start(biomeSource, start, SEARCH_RADIUS, (candidate) -> candidate == biome).getResult().whenComplete((pos, ex) -> {
+			server.execute(() -> {
+				if (pos == null) {
+					source.sendError(new TranslatableText("command.betterend.locatebiome.fail", id));
+				}
+				else {
+					int distance = (int) MHelper.length(pos.getX() - start.getX(), pos.getZ() - start.getZ());
+					source.sendFeedback(new TranslatableText("command.betterend.locatebiome.success", id, pos.getX(), pos.getZ(), distance), false);
+				}
+			});
+		});
+		return 1;
+	}
+	
+	private static int setProfiler(ServerCommandSource source, boolean enabled) {
+		GenerationProfiler.setEnabled(enabled);
+		source.sendFeedback(new TranslatableText(enabled ? "command.betterend.profiler.start" : "command.betterend.profiler.stop"), true);
+		return 1;
+	}
+	
+	private static int resetProfiler(ServerCommandSource source) {
+		GenerationProfiler.reset();
+		source.sendFeedback(new TranslatableText("command.betterend.profiler.reset"), true);
+		return 1;
+	}
+	
+	private static int dumpProfiler(ServerCommandSource source) {
+		File file = GenerationProfiler.dump();
+		source.sendFeedback(new TranslatableText("command.betterend.profiler.dump", file.getPath()), false);
+		return 1;
+	}
+	
+	/**
+	 * Shows the most expensive profiler entries, full list is available in the dump.
+	 */
+	private static int showProfiler(ServerCommandSource source) {
+		List<Entry> entries = GenerationProfiler.getEntries();
+		if (entries.isEmpty()) {
+			source.sendFeedback(new TranslatableText("command.betterend.profiler.empty"), false);
+			return 0;
+		}
+		
+		int count = Math.min(entries.size(), PROFILER_LINES);
+		for (int i = 0; i < count; i++) {
+			Entry entry = entries.get(i);
+			String total = String.format(Locale.ROOT, "%.1f", entry.getTotalNanos() / 1000000.0);
+			String average = String.format(Locale.ROOT, "%.1f", entry.getAverageNanos() / 1000.0);
+			String max = String.format(Locale.ROOT, "%.1f", entry.getMaxNanos() / 1000.0);
+			source.sendFeedback(new TranslatableText("command.betterend.profiler.entry", entry.getName(), entry.getCalls(), total, average, max, entry.getBlocks()), false);
+		}
+		return count;
+	}
+}
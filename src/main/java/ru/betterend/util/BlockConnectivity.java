@@ -0,0 +1,146 @@
+package ru.betterend.util;
+
+import java.util.BitSet;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockBox;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.BlockPos.Mutable;
+
+/**
+ * Connectivity of blocks in a box to terrain. Box and one block margin around it are classified once into dense
+ * bitsets (solid, connector and terrain blocks), flood fill works on packed int indices. Solid blocks touching
+ * terrain are connected, connection spreads from connected connector blocks (usually full cubes) to adjacent
+ * solid blocks. Only blocks inside the box can be solid, terrain is also checked in the margin.
+ */
+public class BlockConnectivity {
+	/** Block can be connected and dropped */
+	public static final int SOLID = 1;
+	/** Connected block spreads connection to its neighbours */
+	public static final int CONNECTOR = 2;
+	/** Block anchors adjacent solid blocks */
+	public static final int TERRAIN = 4;
+	
+	private final BlockBox bounds;
+	private final int minX;
+	private final int minY;
+	private final int minZ;
+	private final int sizeY;
+	private final int sizeZ;
+	private final int strideX;
+	private final int[] offsets;
+	private final BitSet solid;
+	private final BitSet connector;
+	private final BitSet terrain;
+	
+	public BlockConnectivity(BlockBox bounds) {
+		this.bounds = bounds;
+		this.minX = bounds.minX - 1;
+		this.minY = bounds.minY - 1;
+		this.minZ = bounds.minZ - 1;
+		this.sizeY = bounds.maxY - bounds.minY + 3;
+		this.sizeZ = bounds.maxZ - bounds.minZ + 3;
+		this.strideX = sizeY * sizeZ;
+		this.offsets = new int[] { 1, -1, sizeY, -sizeY, strideX, -strideX };
+		int volume = (bounds.maxX - bounds.minX + 3) * strideX;
+		this.solid = new BitSet(volume);
+		this.connector = new BitSet(volume);
+		this.terrain = new BitSet(volume);
+	}
+	
+	/**
+	 * Reads and classifies all blocks of the box and margin, each position is read once.
+	 */
+	public BlockConnectivity load(StateSource source, Classifier classifier) {
+		Mutable pos = new Mutable();
+		for (int x = bounds.minX - 1; x <= bounds.maxX + 1; x++) {
+			pos.setX(x);
+			for (int z = bounds.minZ - 1; z <= bounds.maxZ + 1; z++) {
+				pos.setZ(z);
+				for (int y = bounds.minY - 1; y <= bounds.maxY + 1; y++) {
+					pos.setY(y);
+					int flags = classifier.classify(source.getBlockState(pos), pos);
+					int index = getIndex(x, y, z);
+					if ((flags & TERRAIN) != 0) {
+						terrain.set(index);
+					}
+					if ((flags & SOLID) != 0 && bounds.contains(pos)) {
+						solid.set(index);
+						if ((flags & CONNECTOR) != 0) {
+							connector.set(index);
+						}
+					}
+				}
+			}
+		}
+		return this;
+	}
+	
+	/**
+	 * Returns indices of solid blocks which are not connected to terrain in ascending order (x, z, y). Result is
+	 * empty if no solid block touches terrain, same as if there is nothing to support.
+	 */
+	public int[] findFloating() {
+		BitSet connected = new BitSet(solid.size());
+		int[] queue = new int[solid.cardinality()];
+		int end = 0;
+		for (int index = solid.nextSetBit(0); index >= 0; index = solid.nextSetBit(index + 1)) {
+			for (int offset: offsets) {
+				if (terrain.get(index + offset)) {
+					connected.set(index);
+					queue[end++] = index;
+					break;
+				}
+			}
+		}
+		
+		if (end == 0) {
+			return new int[0];
+		}
+		
+		for (int start = 0; start < end; start++) {
+			int index = queue[start];
+			if (!connector.get(index)) {
+				continue;
+			}
+			for (int offset: offsets) {
+				int next = index + offset;
+				if (solid.get(next) && !connected.get(next)) {
+					connected.set(next);
+					queue[end++] = next;
+				}
+			}
+		}
+		
+		BitSet floating = (BitSet) solid.clone();
+		floating.andNot(connected);
+		int[] result = new int[floating.cardinality()];
+		int count = 0;
+		for (int index = floating.nextSetBit(0); index >= 0; index = floating.nextSetBit(index + 1)) {
+			result[count++] = index;
+		}
+		return result;
+	}
+	
+	public int getIndex(int x, int y, int z) {
+		return (x - minX) * strideX + (z - minZ) * sizeY + y - minY;
+	}
+	
+	public Mutable setPos(Mutable pos, int index) {
+		int column = index / sizeY;
+		return pos.set(minX + column / sizeZ, minY + index % sizeY, minZ + column % sizeZ);
+	}
+	
+	@FunctionalInterface
+	public interface StateSource {
+		BlockState getBlockState(BlockPos pos);
+	}
+	
+	/**
+	 * Returns combination of {@link #SOLID}, {@link #CONNECTOR} and {@link #TERRAIN} flags for the block.
+	 */
+	@FunctionalInterface
+	public interface Classifier {
+		int classify(BlockState state, BlockPos pos);
+	}
+}
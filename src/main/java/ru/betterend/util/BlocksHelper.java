@@ -27,6 +27,7 @@ import ru.betterend.blocks.basis.BlockFur;
 import ru.betterend.blocks.basis.BlockVine;
 import ru.betterend.registry.EndBlocks;
 import ru.betterend.registry.EndTags;
+import ru.betterend.world.generator.GenerationProfiler;
 
 public class BlocksHelper {
 	public static final BooleanProperty ROOTS = BooleanProperty.of("roots");
@@ -62,10 +63,12 @@ public class BlocksHelper {
 
 	public static void setWithoutUpdate(WorldAccess world, BlockPos pos, BlockState state) {
 		world.setBlockState(pos, state, SET_SILENT);
+		GenerationProfiler.onBlockPlaced();
 	}
 	
 	public static void setWithoutUpdate(WorldAccess world, BlockPos pos, Block block) {
 		world.setBlockState(pos, block.getDefaultState(), SET_SILENT);
+		GenerationProfiler.onBlockPlaced();
 	}
 	
 	public static void setWithUpdate(WorldAccess world, BlockPos pos, BlockState state) {
@@ -0,0 +1,173 @@
+package ru.betterend.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.Lists;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.Heightmap;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.ProtoChunk;
+import ru.betterend.world.generator.GenerationProfiler;
+
+/**
+ * Bulk block writer for chunks during generation. Blocks are written directly into chunk sections without
+ * section locks and per-block heightmap updates, heightmaps are updated once per changed column in
+ * {@link #finish()}. Blocks with light or block entities and chunks which are not proto chunks are written
+ * through {@link Chunk#setBlockState(BlockPos, BlockState, boolean)} as before. Writer is not thread-safe and
+ * should be used only by chunk generation step which owns the chunk.
+ */
+public class ChunkWriter {
+	private final BlockPos.Mutable pos = new BlockPos.Mutable();
+	private final int[] columnMin = new int[256];
+	private final int[] columnMax = new int[256];
+	private final ChunkSection[] sections;
+	private final Heightmap[] heightmaps;
+	private final boolean direct;
+	private final Chunk chunk;
+	private int placed;
+	
+	public ChunkWriter(Chunk chunk) {
+		this.chunk = chunk;
+		this.sections = chunk.getSectionArray();
+		this.direct = chunk instanceof ProtoChunk;
+		this.heightmaps = direct ? getHeightmaps(chunk) : new Heightmap[0];
+		Arrays.fill(columnMin, Integer.MAX_VALUE);
+		Arrays.fill(columnMax, Integer.MIN_VALUE);
+	}
+	
+	/**
+	 * Heightmaps which proto chunk updates on block change, missing ones are populated like on first block change.
+	 */
+	private static Heightmap[] getHeightmaps(Chunk chunk) {
+		EnumSet<Heightmap.Type> types = chunk.getStatus().getHeightmapTypes();
+		EnumSet<Heightmap.Type> missing = EnumSet.copyOf(types);
+		Collection<Map.Entry<Heightmap.Type, Heightmap>> present = chunk.getHeightmaps();
+		present.forEach((entry) -> missing.remove(entry.getKey()));
+		if (!missing.isEmpty()) {
+			Heightmap.populateHeightmaps(chunk, missing);
+		}
+		
+		List<Heightmap> heightmaps = Lists.newArrayList();
+		types.forEach((type) -> heightmaps.add(chunk.getHeightmap(type)));
+		return heightmaps.toArray(new Heightmap[heightmaps.size()]);
+	}
+	
+	public BlockState getBlockState(BlockPos pos) {
+		return getBlockState(pos.getX(), pos.getY(), pos.getZ());
+	}
+	
+	public BlockState getBlockState(int x, int y, int z) {
+		if (y < 0 || y > 255) {
+			return Blocks.VOID_AIR.getDefaultState();
+		}
+		ChunkSection section = sections[y >> 4];
+		if (ChunkSection.isEmpty(section)) {
+			return Blocks.AIR.getDefaultState();
+		}
+		return section.getBlockState(x & 15, y & 15, z & 15);
+	}
+	
+	public void setBlockState(BlockPos pos, BlockState state) {
+		setBlockState(pos.getX(), pos.getY(), pos.getZ(), state);
+	}
+	
+	public void setBlockState(int x, int y, int z, BlockState state) {
+		if (y < 0 || y > 255) {
+			return;
+		}
+		if (!canWriteDirect(state)) {
+			pos.set(x, y, z);
+			chunk.setBlockState(pos, state, false);
+			placed++;
+			return;
+		}
+		if (writeSection(x & 15, y, z & 15, state)) {
+			markColumn(x & 15, z & 15, y, y);
+		}
+	}
+	
+	/**
+	 * Fills column span from minY (inclusive) to maxY (exclusive) with the same state.
+	 */
+	public void fillColumn(int x, int z, int minY, int maxY, BlockState state) {
+		minY = Math.max(minY, 0);
+		maxY = Math.min(maxY, 256);
+		if (minY >= maxY) {
+			return;
+		}
+		if (!canWriteDirect(state)) {
+			for (int y = minY; y < maxY; y++) {
+				setBlockState(x, y, z, state);
+			}
+			return;
+		}
+		
+		x &= 15;
+		z &= 15;
+		boolean changed = false;
+		for (int y = minY; y < maxY; y++) {
+			changed |= writeSection(x, y, z, state);
+		}
+		if (changed) {
+			markColumn(x, z, minY, maxY - 1);
+		}
+	}
+	
+	/**
+	 * Updates heightmaps of changed columns. Each changed span is walked from top like single block updates,
+	 * walk stops at the first block which is below heightmap and can't change it.
+	 */
+	public void finish() {
+		for (int index = 0; index < 256; index++) {
+			int max = columnMax[index];
+			if (max < 0) {
+				continue;
+			}
+			int min = columnMin[index];
+			int x = index & 15;
+			int z = index >> 4;
+			for (Heightmap heightmap: heightmaps) {
+				for (int y = max; y >= min && y > heightmap.get(x, z) - 2; y--) {
+					heightmap.trackUpdate(x, y, z, getBlockState(x, y, z));
+				}
+			}
+			columnMin[index] = Integer.MAX_VALUE;
+			columnMax[index] = Integer.MIN_VALUE;
+		}
+		GenerationProfiler.onBlocksPlaced(placed);
+		placed = 0;
+	}
+	
+	private boolean canWriteDirect(BlockState state) {
+		return direct && state.getLuminance() == 0 && !state.getBlock().hasBlockEntity();
+	}
+	
+	private boolean writeSection(int x, int y, int z, BlockState state) {
+		int index = y >> 4;
+		ChunkSection section = sections[index];
+		if (section == null) {
+			if (state.isOf(Blocks.AIR)) {
+				return false;
+			}
+			section = new ChunkSection(index << 4);
+			sections[index] = section;
+		}
+		section.setBlockState(x, y & 15, z, state, false);
+		placed++;
+		return true;
+	}
+	
+	private void markColumn(int x, int z, int minY, int maxY) {
+		int index = z << 4 | x;
+		columnMin[index] = Math.min(columnMin[index], minY);
+		columnMax[index] = Math.max(columnMax[index], maxY);
+	}
+}
@@ -25,6 +25,10 @@ public final class Logger {
 		LOGGER.log(level, modPref + message, params);
 	}
 	
+	public boolean isDebugEnabled() {
+		return LOGGER.isDebugEnabled();
+	}
+	
 	public void debug(Object message) {
 		this.log(Level.DEBUG, message.toString());
 	}
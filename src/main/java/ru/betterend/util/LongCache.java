@@ -0,0 +1,119 @@
+package ru.betterend.util;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+
+/**
+ * Thread-safe size-bounded cache with packed long keys. Keys are split between stripes, each stripe
+ * is a small LRU map guarded by its own lock. Values are computed outside of locks, so loader can be
+ * called more than once for the same key and must return equal values for it.
+ */
+public class LongCache<V> {
+	private final Stripe<V>[] stripes;
+	private final int mask;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	
+	public LongCache(int capacity, int concurrency) {
+		this(capacity, concurrency, null);
+	}
+	
+	/**
+	 * Cache with listener which receives values removed by eviction or {@link #clear()}, listener is called
+	 * under stripe lock.
+	 */
+	@SuppressWarnings("unchecked")
+	public LongCache(int capacity, int concurrency, Consumer<V> removeListener) {
+		int count = HashCommon.nextPowerOfTwo(Math.max(concurrency, 1));
+		int stripeCapacity = Math.max(capacity / count, 1);
+		stripes = new Stripe[count];
+		for (int i = 0; i < count; i++) {
+			stripes[i] = new Stripe<V>(stripeCapacity, removeListener);
+		}
+		mask = count - 1;
+	}
+	
+	public V get(long key, LongFunction<V> loader) {
+		Stripe<V> stripe = stripes[(int) HashCommon.mix(key) & mask];
+		V value = stripe.get(key);
+		if (value != null) {
+			hits.increment();
+			return value;
+		}
+		
+		misses.increment();
+		value = loader.apply(key);
+		return stripe.put(key, value);
+	}
+	
+	public void clear() {
+		for (Stripe<V> stripe: stripes) {
+			stripe.clear();
+		}
+	}
+	
+	public int size() {
+		int size = 0;
+		for (Stripe<V> stripe: stripes) {
+			size += stripe.size();
+		}
+		return size;
+	}
+	
+	public long getHits() {
+		return hits.sum();
+	}
+	
+	public long getMisses() {
+		return misses.sum();
+	}
+	
+	private static final class Stripe<V> {
+		private final Long2ObjectLinkedOpenHashMap<V> map;
+		private final Consumer<V> removeListener;
+		private final int capacity;
+		
+		Stripe(int capacity, Consumer<V> removeListener) {
+			this.map = new Long2ObjectLinkedOpenHashMap<V>(capacity + 1);
+			this.removeListener = removeListener;
+			this.capacity = capacity;
+		}
+		
+		synchronized V get(long key) {
+			return map.getAndMoveToFirst(key);
+		}
+		
+		/**
+		 * Stores value if there is no value for the key yet, returns value which is stored in the cache.
+		 */
+		synchronized V put(long key, V value) {
+			V stored = map.getAndMoveToFirst(key);
+			if (stored != null) {
+				return stored;
+			}
+			if (map.size() >= capacity) {
+				V removed = map.removeLast();
+				if (removeListener != null) {
+					removeListener.accept(removed);
+				}
+			}
+			map.putAndMoveToFirst(key, value);
+			return value;
+		}
+		
+		synchronized void clear() {
+			if (removeListener != null) {
+				map.values().forEach(removeListener);
+			}
+			map.clear();
+		}
+		
+		synchronized int size() {
+			return map.size();
+		}
+	}
+}
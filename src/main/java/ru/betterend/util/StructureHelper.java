@@ -3,9 +3,6 @@ package ru.betterend.util;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Random;
-import java.util.Set;
-
-import com.google.common.collect.Sets;
 
 import net.minecraft.block.BlockState;
 import net.minecraft.block.Blocks;
@@ -23,11 +20,13 @@ import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.BlockPos.Mutable;
 import net.minecraft.util.math.Direction;
 import net.minecraft.world.StructureWorldAccess;
+import ru.betterend.BetterEnd;
 import ru.betterend.registry.EndBlocks;
 import ru.betterend.registry.EndTags;
 
 public class StructureHelper {
 	private static final Direction[] DIR = BlocksHelper.makeHorizontal();
+	private static final BlockState AIR = Blocks.AIR.getDefaultState();
 	
 	public static Structure readStructure(Identifier resource) {
 		String ns = resource.getNamespace();
@@ -97,7 +96,15 @@ public class StructureHelper {
 		return BlockBox.create(x1, y1, z1, x2, y2, z2);
 	}
 	
+	/**
+	 * Erodes structure in bounds. Blocks around bounds are copied into {@link VoxelBuffer}, all passes work on the
+	 * buffer and changed blocks are written back once. Random passes are sequential, final gravity pass is
+	 * column-local and can run in parallel.
+	 */
 	public static void erode(StructureWorldAccess world, BlockBox bounds, int iterations, Random random) {
+		long time = System.nanoTime();
+		VoxelBuffer buffer = makeBuffer(world, bounds);
+		Direction[] dirs = DIR.clone();
 		Mutable mut = new Mutable();
 		boolean canDestruct = true;
 		for (int i = 0; i < iterations; i++) {
@@ -107,8 +114,8 @@ public class StructureHelper {
 					mut.setZ(z);
 					for (int y = bounds.maxY; y >= bounds.minY; y--) {
 						mut.setY(y);
-						BlockState state = world.getBlockState(mut);
-						if (canDestruct && state.isOf(EndBlocks.FLAVOLITE_RUNED_ETERNAL) && random.nextInt(8) == 0 && world.isAir(mut.down(2))) {
+						BlockState state = buffer.getBlockState(mut);
+						if (canDestruct && state.isOf(EndBlocks.FLAVOLITE_RUNED_ETERNAL) && random.nextInt(8) == 0 && buffer.isAir(mut.down(2))) {
 							int r = MHelper.randRange(1, 4, random);
 							int cx = mut.getX();
 							int cy = mut.getY();
@@ -131,8 +138,8 @@ public class StructureHelper {
 										int dz = pz - cz;
 										dz *= dz;
 										mut.setZ(pz);
-										if (dx + dy + dz <= r && world.getBlockState(mut).isOf(EndBlocks.FLAVOLITE_RUNED_ETERNAL)) {
-											BlocksHelper.setWithoutUpdate(world, mut, Blocks.AIR);
+										if (dx + dy + dz <= r && buffer.getBlockState(mut).isOf(EndBlocks.FLAVOLITE_RUNED_ETERNAL)) {
+											buffer.setBlockState(mut, AIR);
 										}
 									}
 								}
@@ -147,54 +154,52 @@ public class StructureHelper {
 							continue;
 						}
 						if (!state.isAir() && random.nextBoolean()) {
-							shuffle(random);
-							for (Direction dir: DIR) {
-								if (world.isAir(mut.offset(dir)) && world.isAir(mut.down().offset(dir))) {
-									BlocksHelper.setWithoutUpdate(world, mut, Blocks.AIR);
+							shuffle(dirs, random);
+							for (Direction dir: dirs) {
+								if (buffer.isAir(mut.offset(dir)) && buffer.isAir(mut.down().offset(dir))) {
+									buffer.setBlockState(mut, AIR);
 									mut.move(dir).move(Direction.DOWN);
-									for (int py = mut.getY(); y >= bounds.minY - 10; y--) {
-										mut.setY(py - 1);
-										if (!world.isAir(mut)) {
-											mut.setY(py);
-											BlocksHelper.setWithoutUpdate(world, mut, state);
-											break;
-										}
+									int py = mut.getY();
+									mut.setY(py - 1);
+									if (!buffer.isAir(mut)) {
+										mut.setY(py);
+										buffer.setBlockState(mut, state);
 									}
 								}
 							}
 							break;
 						}
-						else if (random.nextInt(8) == 0 && !world.getBlockState(mut.up()).isOf(EndBlocks.ETERNAL_PEDESTAL)) {
-							BlocksHelper.setWithoutUpdate(world, mut, Blocks.AIR);
+						else if (random.nextInt(8) == 0 && !buffer.getBlockState(mut.up()).isOf(EndBlocks.ETERNAL_PEDESTAL)) {
+							buffer.setBlockState(mut, AIR);
 						}
 					}
 				}
 			}
 		}
-		for (int x = bounds.minX; x <= bounds.maxX; x++) {
-			mut.setX(x);
-			for (int z = bounds.minZ; z <= bounds.maxZ; z++) {
-				mut.setZ(z);
-				for (int y = bounds.maxY; y >= bounds.minY; y--) {
-					mut.setY(y);
-					BlockState state = world.getBlockState(mut);
-					if (!ignore(state) && world.isAir(mut.down())) {
-						BlocksHelper.setWithoutUpdate(world, mut, Blocks.AIR);
-						for (int py = mut.getY(); py >= bounds.minY - 10; py--) {
-							mut.setY(py - 1);
-							if (!world.isAir(mut)) {
-								mut.setY(py);
-								BlocksHelper.setWithoutUpdate(world, mut, state);
-								break;
-							}
+		buffer.forEachColumn(bounds, 0, (x, z) -> {
+			Mutable pos = new Mutable(x, 0, z);
+			for (int y = bounds.maxY; y >= bounds.minY; y--) {
+				pos.setY(y);
+				BlockState state = buffer.getBlockState(pos);
+				if (!ignore(state) && buffer.isAir(pos.down())) {
+					buffer.setBlockState(pos, AIR);
+					for (int py = y; py >= bounds.minY - 10; py--) {
+						pos.setY(py - 1);
+						if (!buffer.isAir(pos)) {
+							pos.setY(py);
+							buffer.setBlockState(pos, state);
+							break;
 						}
 					}
 				}
 			}
-		}
+		});
+		logErosion("Erosion", bounds, buffer.write(), time);
 	}
-
+	
 	public static void erodeIntense(StructureWorldAccess world, BlockBox bounds, Random random) {
+		long time = System.nanoTime();
+		VoxelBuffer buffer = makeBuffer(world, bounds);
 		Mutable mut = new Mutable();
 		Mutable mut2 = new Mutable();
 		int minY = bounds.minY - 10;
@@ -204,109 +209,77 @@ public class StructureHelper {
 				mut.setZ(z);
 				for (int y = bounds.maxY; y >= bounds.minY; y--) {
 					mut.setY(y);
-					BlockState state = world.getBlockState(mut);
+					BlockState state = buffer.getBlockState(mut);
 					if (!ignore(state)) {
 						if (random.nextInt(6) == 0) {
-							BlocksHelper.setWithoutUpdate(world, mut, Blocks.AIR);
+							buffer.setBlockState(mut, AIR);
 							if (random.nextBoolean()) {
 								int px = MHelper.floor(random.nextGaussian() * 2 + x + 0.5);
 								int pz = MHelper.floor(random.nextGaussian() * 2 + z + 0.5);
 								mut2.set(px, y, pz);
-								while (world.getBlockState(mut2).getMaterial().isReplaceable() && mut2.getY() > minY) {
+								while (buffer.getBlockState(mut2).getMaterial().isReplaceable() && mut2.getY() > minY) {
 									mut2.setY(mut2.getY() - 1);
 								}
 								if (y > 50 && state.canPlaceAt(world, mut2)) {
 									mut2.setY(mut2.getY() + 1);
-									BlocksHelper.setWithoutUpdate(world, mut2, state);
+									buffer.setBlockState(mut2, state);
 								}
 							}
 						}
 						else if (random.nextInt(8) == 0) {
-							BlocksHelper.setWithoutUpdate(world, mut, Blocks.AIR);
+							buffer.setBlockState(mut, AIR);
 						}
 					}
 				}
 			}
 		}
 
-		drop(world, bounds);
+		drop(world, buffer, bounds);
+		logErosion("Intense erosion", bounds, buffer.write(), time);
 	}
 	
-	private static boolean isTerrainNear(StructureWorldAccess world, BlockPos pos) {
-		for (Direction dir: BlocksHelper.DIRECTIONS) {
-			if (world.getBlockState(pos.offset(dir)).isIn(EndTags.GEN_TERRAIN)) {
-				return true;
-			}
-		}
-		return false;
+	/**
+	 * Buffer with bounds and blocks which erosion reads around them: neighbours, falling blocks below and blast
+	 * above. Blasts and scattered blocks can reach further, these positions are accessed through the world.
+	 */
+	private static VoxelBuffer makeBuffer(StructureWorldAccess world, BlockBox bounds) {
+		return new VoxelBuffer(world, BlockBox.create(bounds.minX - 1, bounds.minY - 11, bounds.minZ - 1, bounds.maxX + 1, bounds.maxY + 4, bounds.maxZ + 1));
 	}
 	
-	private static void drop(StructureWorldAccess world, BlockBox bounds) {
-		Mutable mut = new Mutable();
-		
-		Set<BlockPos> blocks = Sets.newHashSet();
-		Set<BlockPos> edge = Sets.newHashSet();
-		Set<BlockPos> add = Sets.newHashSet();
-		
-		for (int x = bounds.minX; x <= bounds.maxX; x++) {
-			mut.setX(x);
-			for (int z = bounds.minZ; z <= bounds.maxZ; z++) {
-				mut.setZ(z);
-				for (int y = bounds.minY; y <= bounds.maxY; y++) {
-					mut.setY(y);
-					BlockState state = world.getBlockState(mut);
-					if (!ignore(state) && isTerrainNear(world, mut)) {
-						edge.add(mut.toImmutable());
-					}
-				}
-			}
+	private static void logErosion(String name, BlockBox bounds, int count, long time) {
+		if (BetterEnd.LOGGER.isDebugEnabled()) {
+			BetterEnd.LOGGER.debug("{} of {}: {} blocks changed in {} ms", name, bounds, count, (System.nanoTime() - time) / 1000000.0);
 		}
-		
-		if (edge.isEmpty()) {
-			return;
-		}
-		
-		while (!edge.isEmpty()) {
-			for (BlockPos center: edge) {
-				for (Direction dir: BlocksHelper.DIRECTIONS) {
-					BlockState state = world.getBlockState(center);
-					if (state.isFullCube(world, center)) {
-						mut.set(center).move(dir);
-						if (bounds.contains(mut)) {
-							state = world.getBlockState(mut);
-							if (!ignore(state) && !blocks.contains(mut)) {
-								add.add(mut.toImmutable());
-							}
-						}
-					}
+	}
+	
+	/**
+	 * Drops blocks which are not connected to terrain. Connectivity is computed once over bounds, floating blocks
+	 * fall in the same order as bounds are iterated (x, z, then y from bottom).
+	 */
+	private static void drop(StructureWorldAccess world, VoxelBuffer buffer, BlockBox bounds) {
+		BlockConnectivity connectivity = new BlockConnectivity(bounds).load(buffer::getBlockState, (state, pos) -> {
+			int flags = state.isIn(EndTags.GEN_TERRAIN) ? BlockConnectivity.TERRAIN : 0;
+			if (!ignore(state)) {
+				flags |= BlockConnectivity.SOLID;
+				if (state.isFullCube(world, pos)) {
+					flags |= BlockConnectivity.CONNECTOR;
 				}
 			}
-			
-			blocks.addAll(edge);
-			edge.clear();
-			edge.addAll(add);
-			add.clear();
-		}
+			return flags;
+		});
 		
+		Mutable mut = new Mutable();
 		int minY = bounds.minY - 10;
-		for (int x = bounds.minX; x <= bounds.maxX; x++) {
-			mut.setX(x);
-			for (int z = bounds.minZ; z <= bounds.maxZ; z++) {
-				mut.setZ(z);
-				for (int y = bounds.minY; y <= bounds.maxY; y++) {
-					mut.setY(y);
-					BlockState state = world.getBlockState(mut);
-					if (!ignore(state) && !blocks.contains(mut)) {
-						BlocksHelper.setWithoutUpdate(world, mut, Blocks.AIR);
-						while (world.getBlockState(mut).getMaterial().isReplaceable() && mut.getY() > minY) {
-							mut.setY(mut.getY() - 1);
-						}
-						if (mut.getY() > minY) {
-							mut.setY(mut.getY() + 1);
-							BlocksHelper.setWithoutUpdate(world, mut, state);
-						}
-					}
-				}
+		for (int index: connectivity.findFloating()) {
+			connectivity.setPos(mut, index);
+			BlockState state = buffer.getBlockState(mut);
+			buffer.setBlockState(mut, AIR);
+			while (buffer.getBlockState(mut).getMaterial().isReplaceable() && mut.getY() > minY) {
+				mut.setY(mut.getY() - 1);
+			}
+			if (mut.getY() > minY) {
+				mut.setY(mut.getY() + 1);
+				buffer.setBlockState(mut, state);
 			}
 		}
 	}
@@ -324,12 +297,12 @@ public class StructureHelper {
 				|| state.getMaterial().equals(Material.WOOD);
 	}
 	
-	private static void shuffle(Random random) {
+	private static void shuffle(Direction[] dirs, Random random) {
 		for (int i = 0; i < 4; i++) {
 			int j = random.nextInt(4);
-			Direction d = DIR[i];
-			DIR[i] = DIR[j];
-			DIR[j] = d;
+			Direction d = dirs[i];
+			dirs[i] = dirs[j];
+			dirs[j] = d;
 		}
 	}
 	
@@ -0,0 +1,179 @@
+package ru.betterend.util;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import com.google.common.collect.Lists;
+
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.util.math.BlockBox;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.StructureWorldAccess;
+
+/**
+ * Palette-indexed copy of world blocks in a box, changes are kept in the buffer and written back to the world
+ * in {@link #write()}. Positions outside of the box or in chunks which are not available in the world are read
+ * and written through the world directly, positions outside of world height behave like in chunks (void air,
+ * writes are ignored), so buffer can replace the world for block reads and writes of an algorithm.
+ */
+public class VoxelBuffer {
+	private static final BlockState AIR = Blocks.AIR.getDefaultState();
+	private static final BlockState VOID_AIR = Blocks.VOID_AIR.getDefaultState();
+	private static final int PARALLEL_VOLUME = 1 << 15;
+	
+	private final Object2IntMap<BlockState> indices = new Object2IntOpenHashMap<BlockState>();
+	private final List<BlockState> palette = Lists.newArrayList();
+	private final StructureWorldAccess world;
+	private final boolean[] loaded;
+	private final boolean[] changed;
+	private final short[] cells;
+	private final int minX;
+	private final int minY;
+	private final int minZ;
+	private final int sizeX;
+	private final int sizeY;
+	private final int sizeZ;
+	
+	public VoxelBuffer(StructureWorldAccess world, BlockBox box) {
+		this.world = world;
+		this.minX = box.minX;
+		this.minY = Math.max(box.minY, 0);
+		this.minZ = box.minZ;
+		this.sizeX = box.maxX - box.minX + 1;
+		this.sizeY = Math.max(Math.min(box.maxY, 255) - minY + 1, 0);
+		this.sizeZ = box.maxZ - box.minZ + 1;
+		this.loaded = new boolean[sizeX * sizeZ];
+		this.changed = new boolean[sizeX * sizeY * sizeZ];
+		this.cells = new short[changed.length];
+		indices.defaultReturnValue(-1);
+		getIndex(AIR);
+		
+		BlockPos.Mutable pos = new BlockPos.Mutable();
+		for (int x = 0; x < sizeX; x++) {
+			pos.setX(minX + x);
+			for (int z = 0; z < sizeZ; z++) {
+				pos.setZ(minZ + z);
+				int column = x * sizeZ + z;
+				if (!world.isChunkLoaded(pos.getX() >> 4, pos.getZ() >> 4)) {
+					continue;
+				}
+				loaded[column] = true;
+				int offset = column * sizeY;
+				for (int y = 0; y < sizeY; y++) {
+					pos.setY(minY + y);
+					cells[offset + y] = (short) getIndex(world.getBlockState(pos));
+				}
+			}
+		}
+	}
+	
+	public BlockState getBlockState(BlockPos pos) {
+		int y = pos.getY();
+		if (y < 0 || y > 255) {
+			return VOID_AIR;
+		}
+		int index = getCell(pos.getX(), y, pos.getZ());
+		return index < 0 ? world.getBlockState(pos) : palette.get(cells[index] & 0xFFFF);
+	}
+	
+	public boolean isAir(BlockPos pos) {
+		return getBlockState(pos).isAir();
+	}
+	
+	public void setBlockState(BlockPos pos, BlockState state) {
+		int y = pos.getY();
+		if (y < 0 || y > 255) {
+			return;
+		}
+		int index = getCell(pos.getX(), y, pos.getZ());
+		if (index < 0) {
+			BlocksHelper.setWithoutUpdate(world, pos, state);
+		}
+		else {
+			cells[index] = (short) getIndex(state);
+			changed[index] = true;
+		}
+	}
+	
+	/**
+	 * Runs action for each column of the box. Columns are processed in parallel when the box is large and all
+	 * its columns (expanded by horizontal margin) are stored in the buffer. In that case action can only access
+	 * its own column and margin through the buffer (within buffer height) and can only set states which were
+	 * already read from the buffer.
+	 */
+	public void forEachColumn(BlockBox box, int margin, ColumnAction action) {
+		int sizeX = box.maxX - box.minX + 1;
+		int sizeZ = box.maxZ - box.minZ + 1;
+		int count = sizeX * sizeZ;
+		if (count > 1 && count * (box.maxY - box.minY + 1) >= PARALLEL_VOLUME && isLoaded(box, margin)) {
+			IntStream.range(0, count).parallel().forEach((index) -> {
+				action.apply(box.minX + index / sizeZ, box.minZ + index % sizeZ);
+			});
+		}
+		else {
+			for (int index = 0; index < count; index++) {
+				action.apply(box.minX + index / sizeZ, box.minZ + index % sizeZ);
+			}
+		}
+	}
+	
+	/**
+	 * Writes changed blocks to the world, returns count of written blocks.
+	 */
+	public int write() {
+		BlockPos.Mutable pos = new BlockPos.Mutable();
+		int count = 0;
+		for (int index = 0; index < cells.length; index++) {
+			if (changed[index]) {
+				int column = index / sizeY;
+				pos.set(minX + column / sizeZ, minY + index % sizeY, minZ + column % sizeZ);
+				BlocksHelper.setWithoutUpdate(world, pos, palette.get(cells[index] & 0xFFFF));
+				changed[index] = false;
+				count++;
+			}
+		}
+		return count;
+	}
+	
+	private boolean isLoaded(BlockBox box, int margin) {
+		for (int x = box.minX - margin; x <= box.maxX + margin; x++) {
+			for (int z = box.minZ - margin; z <= box.maxZ + margin; z++) {
+				int dx = x - minX;
+				int dz = z - minZ;
+				if (dx < 0 || dz < 0 || dx >= sizeX || dz >= sizeZ || !loaded[dx * sizeZ + dz]) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+	
+	private int getCell(int x, int y, int z) {
+		x -= minX;
+		y -= minY;
+		z -= minZ;
+		if (x < 0 || y < 0 || z < 0 || x >= sizeX || y >= sizeY || z >= sizeZ) {
+			return -1;
+		}
+		int column = x * sizeZ + z;
+		return loaded[column] ? column * sizeY + y : -1;
+	}
+	
+	private int getIndex(BlockState state) {
+		int index = indices.getInt(state);
+		if (index < 0) {
+			index = palette.size();
+			indices.put(state, index);
+			palette.add(state);
+		}
+		return index;
+	}
+	
+	@FunctionalInterface
+	public interface ColumnAction {
+		void apply(int x, int z);
+	}
+}
@@ -0,0 +1,95 @@
+package ru.betterend.util.sdf;
+
+import java.util.Arrays;
+
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * Frontier of flood fill on packed positions ({@link BlockPos#asLong()}). Original fill kept frontiers in
+ * java.util.HashSet of block positions, so positions of each step are iterated in the same order: by hash bucket
+ * of the table size such set would have, then by insertion order. Sets turn buckets with more than 8 positions
+ * into trees with different order, such buckets are rare and keep insertion order here.
+ */
+final class FloodFrontier {
+	private static final int MIN_CAPACITY = 16;
+	
+	private final LongOpenHashSet added = new LongOpenHashSet();
+	private long[] current = new long[MIN_CAPACITY];
+	private long[] next = new long[MIN_CAPACITY];
+	private long[] keys = new long[MIN_CAPACITY];
+	private int currentSize;
+	private int nextSize;
+	private int maxSize;
+	
+	FloodFrontier(long start) {
+		add(start);
+		step();
+	}
+	
+	int size() {
+		return currentSize;
+	}
+	
+	long get(int index) {
+		return current[index];
+	}
+	
+	/**
+	 * Adds position to the next step, repeated positions keep their first place.
+	 */
+	void add(long pos) {
+		if (added.add(pos)) {
+			if (nextSize == next.length) {
+				next = Arrays.copyOf(next, nextSize << 1);
+			}
+			next[nextSize++] = pos;
+		}
+	}
+	
+	/**
+	 * Makes positions added since the last step current. Set of the original fill was cleared and refilled,
+	 * so its table size depends on the largest step.
+	 */
+	void step() {
+		int count = nextSize;
+		maxSize = Math.max(maxSize, count);
+		int mask = getCapacity(maxSize) - 1;
+		if (keys.length < count) {
+			keys = new long[next.length];
+		}
+		for (int i = 0; i < count; i++) {
+			long pos = next[i];
+			keys[i] = (long) getBucket(BlockPos.unpackLongX(pos), BlockPos.unpackLongY(pos), BlockPos.unpackLongZ(pos), mask) << 32 | i;
+		}
+		Arrays.sort(keys, 0, count);
+		if (current.length < count) {
+			current = new long[next.length];
+		}
+		for (int i = 0; i < count; i++) {
+			current[i] = next[(int) keys[i]];
+		}
+		currentSize = count;
+		nextSize = 0;
+		added.clear();
+	}
+	
+	/**
+	 * Table size of java.util.HashMap with default settings after inserting the count of keys.
+	 */
+	static int getCapacity(int count) {
+		int capacity = MIN_CAPACITY;
+		while (count > (capacity >> 2) * 3) {
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+	
+	/**
+	 * Bucket of block position in java.util.HashMap table (hash code of position with spread high bits).
+	 */
+	static int getBucket(int x, int y, int z, int mask) {
+		int hash = (y + z * 31) * 31 + x;
+		return (hash ^ (hash >>> 16)) & mask;
+	}
+}
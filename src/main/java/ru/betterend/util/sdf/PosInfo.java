@@ -1,24 +1,27 @@
 package ru.betterend.util.sdf;
 
-import java.util.Map;
-
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
 import net.minecraft.block.BlockState;
 import net.minecraft.block.Blocks;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Direction;
 
+/**
+ * View of a single filled position, positions are stored as packed longs ({@link BlockPos#asLong()}).
+ */
 public class PosInfo implements Comparable<PosInfo> {
 	private static final BlockState AIR = Blocks.AIR.getDefaultState();
-	private final Map<BlockPos, PosInfo> blocks;
-	private final Map<BlockPos, PosInfo> add;
-	private final BlockPos pos;
+	private final Long2ObjectMap<PosInfo> blocks;
+	private final Long2ObjectMap<PosInfo> add;
+	private final long pos;
+	private BlockPos blockPos;
 	private BlockState state;
 	
-	public static PosInfo create(Map<BlockPos, PosInfo> blocks, Map<BlockPos, PosInfo> add, BlockPos pos) {
+	public static PosInfo create(Long2ObjectMap<PosInfo> blocks, Long2ObjectMap<PosInfo> add, long pos) {
 		return new PosInfo(blocks, add, pos);
 	}
 	
-	private PosInfo(Map<BlockPos, PosInfo> blocks, Map<BlockPos, PosInfo> add, BlockPos pos) {
+	private PosInfo(Long2ObjectMap<PosInfo> blocks, Long2ObjectMap<PosInfo> add, long pos) {
 		this.blocks = blocks;
 		this.add = add;
 		this.pos = pos;
@@ -30,6 +33,10 @@ public class PosInfo implements Comparable<PosInfo> {
 	}
 	
 	public BlockState getState(BlockPos pos) {
+		return getState(pos.asLong());
+	}
+	
+	private BlockState getState(long pos) {
 		PosInfo info = blocks.get(pos);
 		if (info == null) {
 			info = add.get(pos);
@@ -43,23 +50,19 @@ public class PosInfo implements Comparable<PosInfo> {
 	}
 	
 	public void setState(BlockPos pos, BlockState state) {
-		PosInfo info = blocks.get(pos);
+		PosInfo info = blocks.get(pos.asLong());
 		if (info != null) {
 			info.setState(state);
 		}
 	}
 	
 	public BlockState getState(Direction dir) {
-		PosInfo info = blocks.get(pos.offset(dir));
-		if (info == null) {
-			info = add.get(pos.offset(dir));
-			return info == null ? AIR : info.getState();
-		}
-		return info.getState();
+		return getState(BlockPos.offset(pos, dir));
 	}
 	
 	public BlockState getState(Direction dir, int distance) {
-		PosInfo info = blocks.get(pos.offset(dir, distance));
+		long offset = BlockPos.add(pos, dir.getOffsetX() * distance, dir.getOffsetY() * distance, dir.getOffsetZ() * distance);
+		PosInfo info = blocks.get(offset);
 		if (info == null) {
 			return AIR;
 		}
@@ -76,7 +79,7 @@ public class PosInfo implements Comparable<PosInfo> {
 	
 	@Override
 	public int hashCode() {
-		return pos.hashCode();
+		return Long.hashCode(pos);
 	}
 	
 	@Override
@@ -84,21 +87,29 @@ public class PosInfo implements Comparable<PosInfo> {
 		if (!(obj instanceof PosInfo)) {
 			return false;
 		}
-		return pos.equals(((PosInfo) obj).pos);
+		return pos == ((PosInfo) obj).pos;
 	}
-
+	
 	@Override
 	public int compareTo(PosInfo info) {
-		return this.pos.getY() - info.pos.getY();
+		return BlockPos.unpackLongY(this.pos) - BlockPos.unpackLongY(info.pos);
 	}
-
+	
 	public BlockPos getPos() {
+		if (blockPos == null) {
+			blockPos = BlockPos.fromLong(pos);
+		}
+		return blockPos;
+	}
+	
+	public long asLong() {
 		return pos;
 	}
 	
 	public void setBlockPos(BlockPos pos, BlockState state) {
-		PosInfo info = new PosInfo(blocks, add, pos);
+		long key = pos.asLong();
+		PosInfo info = new PosInfo(blocks, add, key);
 		info.state = state;
-		add.put(pos, info);
+		add.put(key, info);
 	}
 }
@@ -1,25 +1,35 @@
 package ru.betterend.util.sdf;
 
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
 import java.util.function.Function;
+import java.util.function.LongPredicate;
 
-import com.google.common.collect.Maps;
-import com.google.common.collect.Sets;
+import com.sun.management.ThreadMXBean;
 
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
 import net.minecraft.block.BlockState;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.BlockPos.Mutable;
 import net.minecraft.util.math.Box;
 import net.minecraft.util.math.Direction;
+import net.minecraft.util.math.MathHelper;
 import net.minecraft.world.ServerWorldAccess;
+import ru.betterend.BetterEnd;
 import ru.betterend.util.BlocksHelper;
+import ru.betterend.util.MHelper;
 import ru.betterend.world.structures.StructureWorld;
 
 public abstract class SDF {
+	private static final Direction[] DIRECTIONS = Direction.values();
+	protected static final Box INFINITE_BOX = new Box(Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+	
+	private float[] bounds;
 	private Function<PosInfo, BlockState> postProcess = (info) -> {
 		return info.getState();
 	};
@@ -41,57 +51,144 @@ public abstract class SDF {
 		return this;
 	}
 	
+	/**
+	 * Returns conservative axis-aligned box (relative to SDF origin) around all points with negative distance,
+	 * unbounded SDFs return infinite box. This also refreshes cached boxes of the whole tree which are used
+	 * by binary operations to skip far children, fill methods call it automatically. Trees that are changed
+	 * after the call must call it again before evaluation.
+	 */
+	public Box getBoundingBox() {
+		Box box = makeBoundingBox();
+		float factor = makeBoundFactor();
+		bounds = new float[] {
+			(float) box.minX, (float) box.minY, (float) box.minZ,
+			(float) box.maxX, (float) box.maxY, (float) box.maxZ,
+			factor
+		};
+		return box;
+	}
+	
+	/**
+	 * Computes bounding box of this node, nodes with sources must refresh their boxes here.
+	 */
+	protected Box makeBoundingBox() {
+		return INFINITE_BOX;
+	}
+	
+	/**
+	 * Ratio between distance of this SDF and distance to its bounding box (Chebyshev metric) outside of the box,
+	 * distance is never lower than box distance multiplied by this factor.
+	 */
+	protected float makeBoundFactor() {
+		return 1F;
+	}
+	
+	public float getBoundFactor() {
+		float[] bounds = this.bounds;
+		return bounds == null ? 1F : bounds[6];
+	}
+	
+	float[] getBounds() {
+		return bounds;
+	}
+	
+	/**
+	 * Lower bound of {@link #getDistance(float, float, float)} from the last computed bounding box.
+	 * Returns negative infinity inside the box or if box was not computed.
+	 */
+	public float getBoundDistance(float x, float y, float z) {
+		float[] bounds = this.bounds;
+		return bounds == null ? Float.NEGATIVE_INFINITY : getBoundDistance(x, y, z, bounds, 0);
+	}
+	
+	public static float getBoundDistance(float x, float y, float z, float[] bounds, int index) {
+		float dx = MHelper.max(bounds[index] - x, x - bounds[index + 3]);
+		float dy = MHelper.max(bounds[index + 1] - y, y - bounds[index + 4]);
+		float dz = MHelper.max(bounds[index + 2] - z, z - bounds[index + 5]);
+		float d = MHelper.max(dx, dy, dz);
+		return d > 0 ? d * bounds[index + 6] : Float.NEGATIVE_INFINITY;
+	}
+	
+	/**
+	 * Flattens this SDF tree into a linear program. Distances are identical to the tree form,
+	 * post process and replace functions are copied to the result.
+	 */
+	public SDF compile() {
+		SDF compiled = new SDFCompiled(this);
+		compiled.postProcess = postProcess;
+		compiled.canReplace = canReplace;
+		return compiled;
+	}
+	
+	/**
+	 * Writes this node into compiled program. Default implementation evaluates node as is.
+	 */
+	public void writeProgram(SDFCompiled.Builder builder) {
+		builder.call(this);
+	}
+	
+	/**
+	 * Returns false if distance can depend on something else than position (random values, shared state
+	 * of custom functions). Such SDFs are evaluated for the same positions in the same order as before.
+	 */
+	public boolean isDeterministic() {
+		return true;
+	}
+	
 	@Deprecated
 	public void fillRecursive(ServerWorldAccess world, BlockPos start, int dx, int dy, int dz) {
-		Map<BlockPos, PosInfo> mapWorld = Maps.newHashMap();
-		Map<BlockPos, PosInfo> addInfo = Maps.newHashMap();
-		Set<BlockPos> blocks = Sets.newHashSet();
-		Set<BlockPos> ends = Sets.newHashSet();
-		Set<BlockPos> add = Sets.newHashSet();
-		ends.add(new BlockPos(0, 0, 0));
+		getBoundingBox();
+		
+		Long2ObjectMap<PosInfo> mapWorld = new Long2ObjectLinkedOpenHashMap<PosInfo>();
+		Long2ObjectMap<PosInfo> addInfo = new Long2ObjectLinkedOpenHashMap<PosInfo>();
+		LongSet blocks = new LongOpenHashSet();
+		FloodFrontier ends = new FloodFrontier(BlockPos.asLong(0, 0, 0));
 		boolean run = true;
 		
+		Mutable wpos = new Mutable();
+		
 		while (run) {
-			for (BlockPos center: ends) {
-				for (Direction dir: Direction.values()) {
-					BlockPos pos = center.offset(dir);
-					BlockPos wpos = pos.add(start);
+			for (int i = 0; i < ends.size(); i++) {
+				long center = ends.get(i);
+				for (Direction dir: DIRECTIONS) {
+					long pos = BlockPos.offset(center, dir);
+					int px = BlockPos.unpackLongX(pos);
+					int py = BlockPos.unpackLongY(pos);
+					int pz = BlockPos.unpackLongZ(pos);
+					wpos.set(px + start.getX(), py + start.getY(), pz + start.getZ());
 					
-					run &= Math.abs(pos.getX()) < dx;
-					run &= Math.abs(pos.getY()) < dy;
-					run &= Math.abs(pos.getZ()) < dz;
+					run &= Math.abs(px) < dx;
+					run &= Math.abs(py) < dy;
+					run &= Math.abs(pz) < dz;
 					
 					if (!blocks.contains(pos) && canReplace.apply(world.getBlockState(wpos))) {
-						if (this.getDistance(pos.getX(), pos.getY(), pos.getZ()) < 0) {
+						if (this.getDistance(px, py, pz) < 0) {
 							BlockState state = getBlockState(wpos);
-							PosInfo.create(mapWorld, addInfo, wpos).setState(state);
-							if (Math.abs(pos.getX()) < dx && Math.abs(pos.getY()) < dy && Math.abs(pos.getZ()) < dz) {
-								add.add(pos);
+							PosInfo.create(mapWorld, addInfo, wpos.asLong()).setState(state);
+							if (Math.abs(px) < dx && Math.abs(py) < dy && Math.abs(pz) < dz) {
+								ends.add(pos);
 							}
 						}
 					}
 				}
 			}
 			
-			blocks.addAll(ends);
-			ends.clear();
-			ends.addAll(add);
-			add.clear();
+			for (int i = 0; i < ends.size(); i++) {
+				blocks.add(ends.get(i));
+			}
+			ends.step();
 			
-			run &= !ends.isEmpty();
+			run &= ends.size() > 0;
 		}
 		
-		List<PosInfo> infos = new ArrayList<PosInfo>(mapWorld.values());
+		List<PosInfo> infos = getSortedInfos(mapWorld);
 		if (infos.size() > 0) {
-			Collections.sort(infos);
 			infos.forEach((info) -> {
 				BlockState state = postProcess.apply(info);
 				BlocksHelper.setWithoutUpdate(world, info.getPos(), state);
 			});
 		
-			infos.clear();
-			infos.addAll(addInfo.values());
-			Collections.sort(infos);
+			infos = getSortedInfos(addInfo);
 			infos.forEach((info) -> {
 				if (canReplace.apply(world.getBlockState(info.getPos()))) {
 					BlockState state = postProcess.apply(info);
@@ -102,65 +199,31 @@ public abstract class SDF {
 	}
 	
 	public void fillRecursive(ServerWorldAccess world, BlockPos start) {
-		Map<BlockPos, PosInfo> mapWorld = Maps.newHashMap();
-		Map<BlockPos, PosInfo> addInfo = Maps.newHashMap();
-		Set<BlockPos> blocks = Sets.newHashSet();
-		Set<BlockPos> ends = Sets.newHashSet();
-		Set<BlockPos> add = Sets.newHashSet();
-		ends.add(new BlockPos(0, 0, 0));
-		boolean run = true;
-		
-		Mutable bPos = new Mutable();
+		long allocated = getAllocatedBytes();
+		Long2ObjectMap<PosInfo> mapWorld = new Long2ObjectLinkedOpenHashMap<PosInfo>();
+		Long2ObjectMap<PosInfo> addInfo = new Long2ObjectLinkedOpenHashMap<PosInfo>();
 		
-		while (run) {
-			for (BlockPos center: ends) {
-				for (Direction dir: Direction.values()) {
-					bPos.set(center).move(dir);
-					BlockPos wpos = bPos.add(start);
-					
-					if (!blocks.contains(bPos) && canReplace.apply(world.getBlockState(wpos))) {
-						if (this.getDistance(bPos.getX(), bPos.getY(), bPos.getZ()) < 0) {
-							BlockState state = getBlockState(wpos);
-							PosInfo.create(mapWorld, addInfo, wpos).setState(state);
-							add.add(bPos.toImmutable());
-						}
-					}
+		Mutable wpos = new Mutable();
+		int tested = floodFill(start, (pos) -> {
+			wpos.set(BlockPos.unpackLongX(pos), BlockPos.unpackLongY(pos), BlockPos.unpackLongZ(pos));
+			if (canReplace.apply(world.getBlockState(wpos))) {
+				if (this.getDistance(wpos.getX() - start.getX(), wpos.getY() - start.getY(), wpos.getZ() - start.getZ()) < 0) {
+					PosInfo.create(mapWorld, addInfo, pos).setState(getBlockState(wpos));
+					return true;
 				}
 			}
-			
-			blocks.addAll(ends);
-			ends.clear();
-			ends.addAll(add);
-			add.clear();
-			
-			run &= !ends.isEmpty();
-		}
+			return false;
+		});
 		
-		List<PosInfo> infos = new ArrayList<PosInfo>(mapWorld.values());
-		if (infos.size() > 0) {
-			Collections.sort(infos);
-			infos.forEach((info) -> {
-				info.setState(postProcess.apply(info));
-			});
-			infos.forEach((info) -> {
-				BlocksHelper.setWithoutUpdate(world, info.getPos(), info.getState());
-			});
-
-			infos.clear();
-			infos.addAll(addInfo.values());
-			Collections.sort(infos);
-			infos.forEach((info) -> {
-				if (canReplace.apply(world.getBlockState(info.getPos()))) {
-					BlockState state = postProcess.apply(info);
-					BlocksHelper.setWithoutUpdate(world, info.getPos(), state);
-				}
-			});
-		}
+		place(world, mapWorld, addInfo);
+		logFill(start, tested, mapWorld, addInfo, allocated);
 	}
 	
 	public void fillArea(ServerWorldAccess world, BlockPos center, Box box) {
-		Map<BlockPos, PosInfo> mapWorld = Maps.newHashMap();
-		Map<BlockPos, PosInfo> addInfo = Maps.newHashMap();
+		getBoundingBox();
+		
+		Long2ObjectMap<PosInfo> mapWorld = new Long2ObjectLinkedOpenHashMap<PosInfo>();
+		Long2ObjectMap<PosInfo> addInfo = new Long2ObjectLinkedOpenHashMap<PosInfo>();
 		
 		Mutable mut = new Mutable();
 		for (int y = (int) box.minY; y <= box.maxY; y++) {
@@ -170,142 +233,261 @@ public abstract class SDF {
 				for (int z = (int) box.minZ; z <= box.maxZ; z++) {
 					mut.setZ(z);
 					if (canReplace.apply(world.getBlockState(mut))) {
-						BlockPos fpos = mut.subtract(center);
-						if (this.getDistance(fpos.getX(), fpos.getY(), fpos.getZ()) < 0) {
-							PosInfo.create(mapWorld, addInfo, mut.toImmutable()).setState(getBlockState(mut));
+						if (this.getDistance(x - center.getX(), y - center.getY(), z - center.getZ()) < 0) {
+							PosInfo.create(mapWorld, addInfo, mut.asLong()).setState(getBlockState(mut));
 						}
 					}
 				}
 			}
 		}
 		
-		List<PosInfo> infos = new ArrayList<PosInfo>(mapWorld.values());
-		if (infos.size() > 0) {
-			Collections.sort(infos);
-			infos.forEach((info) -> {
-				info.setState(postProcess.apply(info));
-			});
-			infos.forEach((info) -> {
-				BlocksHelper.setWithoutUpdate(world, info.getPos(), info.getState());
-			});
-
-			infos.clear();
-			infos.addAll(addInfo.values());
-			Collections.sort(infos);
-			infos.forEach((info) -> {
-				if (canReplace.apply(world.getBlockState(info.getPos()))) {
-					BlockState state = postProcess.apply(info);
-					BlocksHelper.setWithoutUpdate(world, info.getPos(), state);
-				}
-			});
-		}
+		place(world, mapWorld, addInfo);
 	}
 	
 	public void fillRecursiveIgnore(ServerWorldAccess world, BlockPos start, Function<BlockState, Boolean> ignore) {
-		Map<BlockPos, PosInfo> mapWorld = Maps.newHashMap();
-		Map<BlockPos, PosInfo> addInfo = Maps.newHashMap();
-		Set<BlockPos> blocks = Sets.newHashSet();
-		Set<BlockPos> ends = Sets.newHashSet();
-		Set<BlockPos> add = Sets.newHashSet();
-		ends.add(new BlockPos(0, 0, 0));
-		boolean run = true;
+		long allocated = getAllocatedBytes();
+		Long2ObjectMap<PosInfo> mapWorld = new Long2ObjectLinkedOpenHashMap<PosInfo>();
+		Long2ObjectMap<PosInfo> addInfo = new Long2ObjectLinkedOpenHashMap<PosInfo>();
 		
+		Mutable wpos = new Mutable();
 		Mutable bPos = new Mutable();
+		int tested = floodFill(start, (pos) -> {
+			wpos.set(BlockPos.unpackLongX(pos), BlockPos.unpackLongY(pos), BlockPos.unpackLongZ(pos));
+			bPos.set(wpos.getX() - start.getX(), wpos.getY() - start.getY(), wpos.getZ() - start.getZ());
+			BlockState state = world.getBlockState(wpos);
+			boolean ign = ignore.apply(state);
+			if (ign || canReplace.apply(state)) {
+				if (this.getDistance(bPos.getX(), bPos.getY(), bPos.getZ()) < 0) {
+					PosInfo.create(mapWorld, addInfo, pos).setState(ign ? state : getBlockState(bPos));
+					return true;
+				}
+			}
+			return false;
+		});
 		
-		while (run) {
-			for (BlockPos center: ends) {
-				for (Direction dir: Direction.values()) {
-					bPos.set(center).move(dir);
-					BlockPos wpos = bPos.add(start);
-					BlockState state = world.getBlockState(wpos);
-					boolean ign = ignore.apply(state);
-					if (!blocks.contains(bPos) && (ign || canReplace.apply(state))) {
-						if (this.getDistance(bPos.getX(), bPos.getY(), bPos.getZ()) < 0) {
-							PosInfo.create(mapWorld, addInfo, wpos).setState(ign ? state : getBlockState(bPos));
-							add.add(bPos.toImmutable());
+		place(world, mapWorld, addInfo);
+		logFill(start, tested, mapWorld, addInfo, allocated);
+	}
+	
+	public void fillRecursive(StructureWorld world, BlockPos start) {
+		fillRecursive(world, start, true);
+	}
+	
+	/**
+	 * Deterministic SDFs with large or infinite bounding box are rasterized in parallel by {@link SDFRasterizer}
+	 * if rasterize is true, flood fill then tests raster mask and evaluates SDF only for filled positions to
+	 * select their block states. Positions, block states and their order are the same as in sequential fill.
+	 */
+	void fillRecursive(StructureWorld world, BlockPos start, boolean rasterize) {
+		long allocated = getAllocatedBytes();
+		Long2ObjectMap<PosInfo> mapWorld = new Long2ObjectLinkedOpenHashMap<PosInfo>();
+		Long2ObjectMap<PosInfo> addInfo = new Long2ObjectLinkedOpenHashMap<PosInfo>();
+		
+		SDFRasterizer.Mask mask = rasterize ? SDFRasterizer.makeMask(this, start, getBoundingBox()) : null;
+		Mutable wpos = new Mutable();
+		int tested = floodFill(start, (pos) -> {
+			wpos.set(BlockPos.unpackLongX(pos), BlockPos.unpackLongY(pos), BlockPos.unpackLongZ(pos));
+			int x = wpos.getX() - start.getX();
+			int y = wpos.getY() - start.getY();
+			int z = wpos.getZ() - start.getZ();
+			if (mask != null && !mask.contains(x, y, z)) {
+				return false;
+			}
+			if (this.getDistance(x, y, z) < 0) {
+				PosInfo.create(mapWorld, addInfo, pos).setState(getBlockState(wpos));
+				return true;
+			}
+			return false;
+		});
+		
+		place(world, mapWorld, addInfo);
+		logFill(start, tested, mapWorld, addInfo, allocated);
+	}
+	
+	/**
+	 * Fills all points of the box (relative to start) with negative distance, unlike recursive fill
+	 * it doesn't require shape to be connected to start position. Distances of deterministic SDFs are
+	 * evaluated in parallel by {@link SDFRasterizer}, block states are selected in the same order as in
+	 * sequential fill. Other SDFs are evaluated once per point in a single thread.
+	 */
+	public void fillArea(StructureWorld world, BlockPos start, Box box) {
+		Long2ObjectMap<PosInfo> mapWorld = new Long2ObjectLinkedOpenHashMap<PosInfo>();
+		Long2ObjectMap<PosInfo> addInfo = new Long2ObjectLinkedOpenHashMap<PosInfo>();
+		
+		getBoundingBox();
+		Mutable wpos = new Mutable();
+		if (!isDeterministic()) {
+			for (int y = MathHelper.floor(box.minY); y <= MathHelper.ceil(box.maxY); y++) {
+				for (int x = MathHelper.floor(box.minX); x <= MathHelper.ceil(box.maxX); x++) {
+					for (int z = MathHelper.floor(box.minZ); z <= MathHelper.ceil(box.maxZ); z++) {
+						if (this.getDistance(x, y, z) < 0) {
+							wpos.set(x + start.getX(), y + start.getY(), z + start.getZ());
+							PosInfo.create(mapWorld, addInfo, wpos.asLong()).setState(getBlockState(wpos));
 						}
 					}
 				}
 			}
+			place(world, mapWorld, addInfo);
+			return;
+		}
+		
+		SDFRasterizer.Raster raster = SDFRasterizer.rasterize(this, start, box);
+		for (int y = raster.getMinY(); y <= raster.getMaxY(); y++) {
+			for (int x = raster.getMinX(); x <= raster.getMaxX(); x++) {
+				for (int z = raster.getMinZ(); z <= raster.getMaxZ(); z++) {
+					// Distance is evaluated again to select operands of binary operations for block state
+					if (raster.contains(x, y, z) && this.getDistance(x, y, z) < 0) {
+						wpos.set(x + start.getX(), y + start.getY(), z + start.getZ());
+						PosInfo.create(mapWorld, addInfo, wpos.asLong()).setState(getBlockState(wpos));
+					}
+				}
+			}
+		}
+		
+		place(world, mapWorld, addInfo);
+	}
+	
+	/**
+	 * Breadth-first search from start, filter receives packed world positions. Positions are visited in the same
+	 * order as in the original fill ({@link FloodFrontier}), a position is tested again from each frontier
+	 * neighbour until it is filled, so SDFs and placers consuming random values give the same result.
+	 * Deterministic SDFs skip positions outside of the bounding box and positions which were already rejected,
+	 * these tests have no side effects. Returns count of tested positions.
+	 */
+	private int floodFill(BlockPos start, LongPredicate filter) {
+		Box box = getBoundingBox();
+		boolean deterministic = isDeterministic();
+		LongSet blocks = new LongOpenHashSet();
+		LongSet rejected = new LongOpenHashSet();
+		FloodFrontier ends = new FloodFrontier(BlockPos.asLong(0, 0, 0));
+		int tested = 0;
+		
+		while (ends.size() > 0) {
+			for (int i = 0; i < ends.size(); i++) {
+				long center = ends.get(i);
+				for (Direction dir: DIRECTIONS) {
+					long pos = BlockPos.offset(center, dir);
+					if (blocks.contains(pos)) {
+						continue;
+					}
+					int px = BlockPos.unpackLongX(pos);
+					int py = BlockPos.unpackLongY(pos);
+					int pz = BlockPos.unpackLongZ(pos);
+					if (deterministic && (rejected.contains(pos) || !contains(box, px, py, pz))) {
+						continue;
+					}
+					tested++;
+					if (filter.test(BlockPos.asLong(px + start.getX(), py + start.getY(), pz + start.getZ()))) {
+						ends.add(pos);
+					}
+					else if (deterministic) {
+						rejected.add(pos);
+					}
+				}
+			}
 			
-			blocks.addAll(ends);
-			ends.clear();
-			ends.addAll(add);
-			add.clear();
-			
-			run &= !ends.isEmpty();
+			for (int i = 0; i < ends.size(); i++) {
+				blocks.add(ends.get(i));
+			}
+			ends.step();
 		}
 		
-		List<PosInfo> infos = new ArrayList<PosInfo>(mapWorld.values());
+		return tested;
+	}
+	
+	private static boolean contains(Box box, int x, int y, int z) {
+		return x >= box.minX && x <= box.maxX && y >= box.minY && y <= box.maxY && z >= box.minZ && z <= box.maxZ;
+	}
+	
+	private void place(ServerWorldAccess world, Long2ObjectMap<PosInfo> mapWorld, Long2ObjectMap<PosInfo> addInfo) {
+		List<PosInfo> infos = getSortedInfos(mapWorld);
 		if (infos.size() > 0) {
-			Collections.sort(infos);
+			Mutable pos = new Mutable();
 			infos.forEach((info) -> {
 				info.setState(postProcess.apply(info));
 			});
 			infos.forEach((info) -> {
-				BlocksHelper.setWithoutUpdate(world, info.getPos(), info.getState());
+				BlocksHelper.setWithoutUpdate(world, setPos(pos, info), info.getState());
 			});
-
-			infos.clear();
-			infos.addAll(addInfo.values());
-			Collections.sort(infos);
+			
+			infos = getSortedInfos(addInfo);
 			infos.forEach((info) -> {
-				if (canReplace.apply(world.getBlockState(info.getPos()))) {
+				if (canReplace.apply(world.getBlockState(setPos(pos, info)))) {
 					BlockState state = postProcess.apply(info);
-					BlocksHelper.setWithoutUpdate(world, info.getPos(), state);
+					BlocksHelper.setWithoutUpdate(world, setPos(pos, info), state);
 				}
 			});
 		}
 	}
 	
-	public void fillRecursive(StructureWorld world, BlockPos start) {
-		Map<BlockPos, PosInfo> mapWorld = Maps.newHashMap();
-		Map<BlockPos, PosInfo> addInfo = Maps.newHashMap();
-		Set<BlockPos> blocks = Sets.newHashSet();
-		Set<BlockPos> ends = Sets.newHashSet();
-		Set<BlockPos> add = Sets.newHashSet();
-		ends.add(new BlockPos(0, 0, 0));
-		boolean run = true;
-		
-		Mutable bPos = new Mutable();
-		
-		while (run) {
-			for (BlockPos center: ends) {
-				for (Direction dir: Direction.values()) {
-					bPos.set(center).move(dir);
-					BlockPos wpos = bPos.add(start);
-					
-					if (!blocks.contains(bPos)) {
-						if (this.getDistance(bPos.getX(), bPos.getY(), bPos.getZ()) < 0) {
-							BlockState state = getBlockState(wpos);
-							PosInfo.create(mapWorld, addInfo, wpos).setState(state);
-							add.add(bPos.toImmutable());
-						}
-					}
-				}
-			}
-			
-			blocks.addAll(ends);
-			ends.clear();
-			ends.addAll(add);
-			add.clear();
-			
-			run &= !ends.isEmpty();
-		}
-		
-		List<PosInfo> infos = new ArrayList<PosInfo>(mapWorld.values());
-		Collections.sort(infos);
+	private void place(StructureWorld world, Long2ObjectMap<PosInfo> mapWorld, Long2ObjectMap<PosInfo> addInfo) {
+		Mutable pos = new Mutable();
+		List<PosInfo> infos = getSortedInfos(mapWorld);
 		infos.forEach((info) -> {
 			BlockState state = postProcess.apply(info);
-			world.setBlock(info.getPos(), state);
+			world.setBlock(setPos(pos, info), state);
 		});
 		
-		infos.clear();
-		infos.addAll(addInfo.values());
-		Collections.sort(infos);
+		infos = getSortedInfos(addInfo);
 		infos.forEach((info) -> {
 			BlockState state = postProcess.apply(info);
-			world.setBlock(info.getPos(), state);
+			world.setBlock(setPos(pos, info), state);
 		});
 	}
+	
+	private static Mutable setPos(Mutable pos, PosInfo info) {
+		long key = info.asLong();
+		return pos.set(BlockPos.unpackLongX(key), BlockPos.unpackLongY(key), BlockPos.unpackLongZ(key));
+	}
+	
+	/**
+	 * Returns infos sorted by height. Infos with the same height keep the order of a hash map with block position
+	 * keys filled in the same order (infos were stored in such maps before, see {@link FloodFrontier}), so post
+	 * processing visits them and consumes random values in the same order. Infos are sorted by packed keys,
+	 * info maps must keep insertion order.
+	 */
+	private static List<PosInfo> getSortedInfos(Long2ObjectMap<PosInfo> infos) {
+		int count = infos.size();
+		PosInfo[] values = infos.values().toArray(new PosInfo[count]);
+		long[] keys = new long[count];
+		int mask = FloodFrontier.getCapacity(count) - 1;
+		for (int i = 0; i < count; i++) {
+			long pos = values[i].asLong();
+			keys[i] = (long) FloodFrontier.getBucket(BlockPos.unpackLongX(pos), BlockPos.unpackLongY(pos), BlockPos.unpackLongZ(pos), mask) << 32 | i;
+		}
+		Arrays.sort(keys);
+		
+		int[] order = new int[count];
+		for (int i = 0; i < count; i++) {
+			order[i] = (int) keys[i];
+			keys[i] = (long) BlockPos.unpackLongY(values[order[i]].asLong()) << 32 | i;
+		}
+		Arrays.sort(keys);
+		
+		List<PosInfo> result = new ArrayList<PosInfo>(count);
+		for (int i = 0; i < count; i++) {
+			result.add(values[order[(int) keys[i]]]);
+		}
+		return result;
+	}
+	
+	/**
+	 * Returns count of bytes allocated by current thread if debug log is enabled and JVM can measure it, -1 otherwise.
+	 */
+	private static long getAllocatedBytes() {
+		if (BetterEnd.LOGGER.isDebugEnabled() && ManagementFactory.getThreadMXBean() instanceof ThreadMXBean) {
+			ThreadMXBean bean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+			if (bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+				return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+	
+	private static void logFill(BlockPos start, int tested, Long2ObjectMap<PosInfo> mapWorld, Long2ObjectMap<PosInfo> addInfo, long allocated) {
+		if (BetterEnd.LOGGER.isDebugEnabled()) {
+			long bytes = allocated < 0 ? -1 : getAllocatedBytes() - allocated;
+			BetterEnd.LOGGER.debug("SDF fill at {}: {} positions tested, {} infos, {} added infos, {} bytes allocated", start, tested, mapWorld.size(), addInfo.size(), bytes);
+		}
+	}
 }
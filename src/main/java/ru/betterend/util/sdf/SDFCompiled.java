@@ -0,0 +1,436 @@
+package ru.betterend.util.sdf;
+
+import java.util.List;
+
+import com.google.common.collect.Lists;
+
+import it.unimi.dsi.fastutil.floats.FloatArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Box;
+import net.minecraft.util.math.MathHelper;
+import ru.betterend.util.MHelper;
+import ru.betterend.util.sdf.operator.SDFBinary;
+import ru.betterend.util.sdf.operator.SDFDisplacement;
+import ru.betterend.util.sdf.primitive.SDFCappedCone;
+import ru.betterend.util.sdf.primitive.SDFCapsule;
+import ru.betterend.util.sdf.primitive.SDFHexPrism;
+import ru.betterend.util.sdf.primitive.SDFLine;
+import ru.betterend.util.sdf.primitive.SDFPie;
+import ru.betterend.util.sdf.primitive.SDFSphere;
+
+/**
+ * SDF tree flattened into a linear program for a register/stack machine.
+ * Nodes without a program form (custom functions, rotations) are called as regular SDFs.
+ * Block states are taken from the source tree, binary nodes still receive their value selection.
+ * Bounding boxes are baked into the program, so union and subtraction culling matches the tree form.
+ */
+public class SDFCompiled extends SDF {
+	private static final ThreadLocal<Stack> STACK = ThreadLocal.withInitial(Stack::new);
+	
+	public static final int CALL = 0;
+	
+	public static final int SPHERE = 1;
+	public static final int CAPSULE = 2;
+	public static final int LINE = 3;
+	public static final int CAPPED_CONE = 4;
+	public static final int HEX_PRISM = 5;
+	public static final int PIE = 6;
+	public static final int FLATLAND = 7;
+	
+	public static final int TRANSLATE = 8;
+	public static final int SCALE = 9;
+	public static final int SCALE_3D = 10;
+	public static final int COPY_ROTATE = 11;
+	public static final int RESTORE = 12;
+	
+	public static final int MULTIPLY = 13;
+	public static final int SUBTRACT = 14;
+	public static final int INVERT = 15;
+	
+	public static final int UNION = 16;
+	public static final int INTERSECTION = 17;
+	public static final int SUBTRACTION = 18;
+	public static final int SMOOTH_UNION = 19;
+	public static final int SMOOTH_INTERSECTION = 20;
+	public static final int SMOOTH_SUBTRACTION = 21;
+	
+	public static final int DISPLACE_BEGIN = 22;
+	public static final int DISPLACE_END = 23;
+	
+	public static final int CULL_UNION = 24;
+	public static final int CULL_SUBTRACTION = 25;
+	
+	private final SDF source;
+	private final int[] code;
+	private final float[] constants;
+	private final SDF[] nodes;
+	private final int valueSize;
+	private final int frameSize;
+	private final Box boundingBox;
+	private final float boundFactor;
+	
+	SDFCompiled(SDF source) {
+		this.boundingBox = source.getBoundingBox();
+		this.boundFactor = source.getBoundFactor();
+		Builder builder = new Builder();
+		builder.write(source);
+		this.source = source;
+		this.code = builder.code.toIntArray();
+		this.constants = builder.constants.toFloatArray();
+		this.nodes = builder.nodes.toArray(new SDF[builder.nodes.size()]);
+		this.valueSize = builder.maxValues;
+		this.frameSize = builder.maxValues + builder.maxCoords * 3;
+	}
+	
+	@Override
+	public float getDistance(float x, float y, float z) {
+		Stack stack = STACK.get();
+		int base = stack.push(frameSize);
+		try {
+			return execute(stack.data, base, x, y, z);
+		}
+		finally {
+			stack.pop(base);
+		}
+	}
+	
+	private float execute(float[] data, int base, float x, float y, float z) {
+		final int[] code = this.code;
+		final float[] c = this.constants;
+		int sp = base;
+		int cp = base + valueSize;
+		int pc = 0;
+		int index;
+		float a;
+		float b;
+		float h;
+		while (pc < code.length) {
+			switch (code[pc++]) {
+				case CALL:
+					data[sp++] = nodes[code[pc++]].getDistance(x, y, z);
+					break;
+				case SPHERE:
+					index = code[pc++];
+					data[sp++] = SDFSphere.getDistance(x, y, z, c[index]);
+					break;
+				case CAPSULE:
+					index = code[pc++];
+					data[sp++] = SDFCapsule.getDistance(x, y, z, c[index], c[index + 1]);
+					break;
+				case LINE:
+					index = code[pc++];
+					data[sp++] = SDFLine.getDistance(x, y, z, c[index], c[index + 1], c[index + 2], c[index + 3], c[index + 4], c[index + 5], c[index + 6]);
+					break;
+				case CAPPED_CONE:
+					index = code[pc++];
+					data[sp++] = SDFCappedCone.getDistance(x, y, z, c[index], c[index + 1], c[index + 2]);
+					break;
+				case HEX_PRISM:
+					index = code[pc++];
+					data[sp++] = SDFHexPrism.getDistance(x, y, z, c[index], c[index + 1]);
+					break;
+				case PIE:
+					index = code[pc++];
+					data[sp++] = SDFPie.getDistance(x, y, z, c[index], c[index + 1], c[index + 2]);
+					break;
+				case FLATLAND:
+					pc++;
+					data[sp++] = y;
+					break;
+				case TRANSLATE:
+					index = code[pc++];
+					data[cp++] = x;
+					data[cp++] = y;
+					data[cp++] = z;
+					x = x - c[index];
+					y = y - c[index + 1];
+					z = z - c[index + 2];
+					break;
+				case SCALE:
+					index = code[pc++];
+					data[cp++] = x;
+					data[cp++] = y;
+					data[cp++] = z;
+					x = x / c[index];
+					y = y / c[index];
+					z = z / c[index];
+					break;
+				case SCALE_3D:
+					index = code[pc++];
+					data[cp++] = x;
+					data[cp++] = y;
+					data[cp++] = z;
+					x = x / c[index];
+					y = y / c[index + 1];
+					z = z / c[index + 2];
+					break;
+				case COPY_ROTATE:
+					pc++;
+					data[cp++] = x;
+					data[cp++] = y;
+					data[cp++] = z;
+					a = (float) Math.atan2(x, z);
+					z = MHelper.length(x, z);
+					x = a;
+					break;
+				case RESTORE:
+					pc++;
+					z = data[--cp];
+					y = data[--cp];
+					x = data[--cp];
+					break;
+				case MULTIPLY:
+					index = code[pc++];
+					data[sp - 1] = data[sp - 1] * c[index];
+					break;
+				case SUBTRACT:
+					index = code[pc++];
+					data[sp - 1] = data[sp - 1] - c[index];
+					break;
+				case INVERT:
+					pc++;
+					data[sp - 1] = -data[sp - 1];
+					break;
+				case UNION:
+					b = data[--sp];
+					a = data[sp - 1];
+					((SDFBinary) nodes[code[pc++]]).selectValue(a, b);
+					data[sp - 1] = MHelper.min(a, b);
+					break;
+				case INTERSECTION:
+					b = data[--sp];
+					a = data[sp - 1];
+					((SDFBinary) nodes[code[pc++]]).selectValue(a, b);
+					data[sp - 1] = MHelper.max(a, b);
+					break;
+				case SUBTRACTION:
+					b = data[--sp];
+					a = data[sp - 1];
+					((SDFBinary) nodes[code[pc++]]).selectValue(a, b);
+					data[sp - 1] = MHelper.max(a, -b);
+					break;
+				case SMOOTH_UNION:
+					b = data[--sp];
+					a = data[sp - 1];
+					((SDFBinary) nodes[code[pc++]]).selectValue(a, b);
+					index = code[pc++];
+					h = MathHelper.clamp(0.5F + 0.5F * (b - a) / c[index], 0F, 1F);
+					data[sp - 1] = MathHelper.lerp(h, b, a) - c[index] * h * (1F - h);
+					break;
+				case SMOOTH_INTERSECTION:
+					b = data[--sp];
+					a = data[sp - 1];
+					((SDFBinary) nodes[code[pc++]]).selectValue(a, b);
+					index = code[pc++];
+					h = MathHelper.clamp(0.5F - 0.5F * (b - a) / c[index], 0F, 1F);
+					data[sp - 1] = MathHelper.lerp(h, b, a) + c[index] * h * (1F - h);
+					break;
+				case SMOOTH_SUBTRACTION:
+					b = data[--sp];
+					a = data[sp - 1];
+					((SDFBinary) nodes[code[pc++]]).selectValue(a, b);
+					index = code[pc++];
+					h = MathHelper.clamp(0.5F - 0.5F * (b + a) / c[index], 0F, 1F);
+					data[sp - 1] = MathHelper.lerp(h, b, -a) + c[index] * h * (1F - h);
+					break;
+				case DISPLACE_BEGIN:
+					((SDFDisplacement) nodes[code[pc++]]).beginDisplacement(x, y, z);
+					break;
+				case DISPLACE_END:
+					data[sp - 1] = data[sp - 1] + ((SDFDisplacement) nodes[code[pc++]]).getDisplacement();
+					break;
+				case CULL_UNION:
+					a = data[sp - 1];
+					if (a < getBoundDistance(x, y, z, c, code[pc + 1])) {
+						((SDFBinary) nodes[code[pc]]).selectValue(a, Float.POSITIVE_INFINITY);
+						pc = code[pc + 2];
+					}
+					else {
+						pc += 3;
+					}
+					break;
+				case CULL_SUBTRACTION:
+					a = data[sp - 1];
+					if (Math.abs(a) < getBoundDistance(x, y, z, c, code[pc + 1])) {
+						((SDFBinary) nodes[code[pc]]).selectValue(a, Float.POSITIVE_INFINITY);
+						pc = code[pc + 2];
+					}
+					else {
+						pc += 3;
+					}
+					break;
+			}
+		}
+		return data[base];
+	}
+	
+	@Override
+	public BlockState getBlockState(BlockPos pos) {
+		return source.getBlockState(pos);
+	}
+	
+	@Override
+	protected Box makeBoundingBox() {
+		return boundingBox;
+	}
+	
+	@Override
+	protected float makeBoundFactor() {
+		return boundFactor;
+	}
+	
+	@Override
+	public SDF compile() {
+		return this;
+	}
+	
+	@Override
+	public boolean isDeterministic() {
+		return source.isDeterministic();
+	}
+	
+	public int getProgramSize() {
+		return code.length;
+	}
+	
+	public static final class Builder {
+		private final IntArrayList code = new IntArrayList();
+		private final FloatArrayList constants = new FloatArrayList();
+		private final List<SDF> nodes = Lists.newArrayList();
+		private int values;
+		private int coords;
+		private int maxValues;
+		private int maxCoords;
+		
+		private Builder() {}
+		
+		public void write(SDF sdf) {
+			sdf.writeProgram(this);
+		}
+		
+		/**
+		 * Evaluates node as a regular SDF.
+		 */
+		public void call(SDF sdf) {
+			code.add(CALL);
+			code.add(addNode(sdf));
+			pushValue();
+		}
+		
+		/**
+		 * Evaluates primitive with constant parameters and pushes its distance.
+		 */
+		public void primitive(int operation, float... params) {
+			code.add(operation);
+			code.add(addConstants(params));
+			pushValue();
+		}
+		
+		/**
+		 * Stores current coordinates and transforms them, must be followed by {@link #restore()}.
+		 */
+		public void transform(int operation, float... params) {
+			code.add(operation);
+			code.add(addConstants(params));
+			coords++;
+			maxCoords = Math.max(maxCoords, coords);
+		}
+		
+		public void restore() {
+			code.add(RESTORE);
+			code.add(0);
+			coords--;
+		}
+		
+		/**
+		 * Modifies last pushed distance.
+		 */
+		public void modify(int operation, float... params) {
+			code.add(operation);
+			code.add(addConstants(params));
+		}
+		
+		/**
+		 * Combines two last pushed distances.
+		 */
+		public void binary(int operation, SDFBinary node, float... params) {
+			code.add(operation);
+			code.add(addNode(node));
+			if (params.length > 0) {
+				code.add(addConstants(params));
+			}
+			values--;
+		}
+		
+		/**
+		 * Skips following code up to {@link #label(int)} if point is far enough from bounding box of the bounded node,
+		 * node receives selection of its first value. Returns jump index or -1 if bounded node has no box.
+		 */
+		public int cull(int operation, SDFBinary node, SDF bounded) {
+			float[] bounds = bounded.getBounds();
+			if (bounds == null) {
+				return -1;
+			}
+			code.add(operation);
+			code.add(addNode(node));
+			code.add(addConstants(bounds));
+			code.add(0);
+			return code.size() - 1;
+		}
+		
+		public void label(int jump) {
+			if (jump >= 0) {
+				code.set(jump, code.size());
+			}
+		}
+		
+		public void displacement(SDFDisplacement node, SDF source) {
+			int index = addNode(node);
+			code.add(DISPLACE_BEGIN);
+			code.add(index);
+			write(source);
+			code.add(DISPLACE_END);
+			code.add(index);
+		}
+		
+		private void pushValue() {
+			values++;
+			maxValues = Math.max(maxValues, values);
+		}
+		
+		private int addNode(SDF sdf) {
+			nodes.add(sdf);
+			return nodes.size() - 1;
+		}
+		
+		private int addConstants(float... params) {
+			int index = constants.size();
+			for (float param: params) {
+				constants.add(param);
+			}
+			return index;
+		}
+	}
+	
+	private static final class Stack {
+		private float[] data = new float[64];
+		private int top;
+		
+		int push(int size) {
+			int base = top;
+			top += size;
+			if (top > data.length) {
+				float[] copy = new float[Math.max(top, data.length << 1)];
+				System.arraycopy(data, 0, copy, 0, base);
+				data = copy;
+			}
+			return base;
+		}
+		
+		void pop(int base) {
+			top = base;
+		}
+	}
+}
@@ -0,0 +1,275 @@
+package ru.betterend.util.sdf;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import com.google.common.collect.Lists;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Box;
+import net.minecraft.util.math.MathHelper;
+
+/**
+ * Evaluates SDF distances in a box split into 16x16 column slabs aligned to world chunks. Slabs of
+ * deterministic SDFs are evaluated with ForkJoin pool and only store which points are inside, block
+ * states are computed later in a single thread, so output doesn't depend on thread count.
+ * SDFs without finite box are split into 16x16x16 sections rasterized when they are needed.
+ */
+public final class SDFRasterizer {
+	private static final int PARALLEL_VOLUME = 1 << 15;
+	
+	private SDFRasterizer() {}
+	
+	/**
+	 * Returns mask for recursive fill of deterministic SDF: raster of the box if it is finite and large or
+	 * sections rasterized on demand if it is infinite. Returns null for other SDFs, they are evaluated
+	 * by the fill itself.
+	 */
+	public static Mask makeMask(SDF sdf, BlockPos start, Box box) {
+		if (!sdf.isDeterministic()) {
+			return null;
+		}
+		if (!Double.isFinite(box.minX + box.minY + box.minZ + box.maxX + box.maxY + box.maxZ)) {
+			return new SectionMask(sdf);
+		}
+		if ((box.maxX - box.minX + 1) * (box.maxY - box.minY + 1) * (box.maxZ - box.minZ + 1) < PARALLEL_VOLUME) {
+			return null;
+		}
+		return rasterize(sdf, start, box);
+	}
+	
+	/**
+	 * Returns mask of points in the box (relative to start) with negative distance. Bounding boxes of
+	 * the SDF tree must be refreshed before the call, see {@link SDF#getBoundingBox()}.
+	 */
+	public static Raster rasterize(SDF sdf, BlockPos start, Box box) {
+		return rasterize(sdf, start, box, sdf.isDeterministic());
+	}
+	
+	/**
+	 * Rasterizes box, large boxes are split between threads if parallel is true.
+	 */
+	static Raster rasterize(SDF sdf, BlockPos start, Box box, boolean parallel) {
+		Raster raster = new Raster(start, box);
+		List<Slab> slabs = Lists.newArrayList();
+		for (int cz = raster.chunkZ1; cz <= raster.chunkZ2; cz++) {
+			for (int cx = raster.chunkX1; cx <= raster.chunkX2; cx++) {
+				slabs.add(new Slab(sdf, raster, cx, cz));
+			}
+		}
+		
+		if (parallel && slabs.size() > 1 && raster.getVolume() >= PARALLEL_VOLUME) {
+			ForkJoinTask.invokeAll(slabs);
+		}
+		else {
+			slabs.forEach(Slab::compute);
+		}
+		
+		return raster;
+	}
+	
+	public interface Mask {
+		/**
+		 * Checks if point (relative to start) has negative distance.
+		 */
+		boolean contains(int x, int y, int z);
+	}
+	
+	public static final class Raster implements Mask {
+		private final int startX;
+		private final int startZ;
+		private final int x1;
+		private final int y1;
+		private final int z1;
+		private final int x2;
+		private final int y2;
+		private final int z2;
+		private final int chunkX1;
+		private final int chunkZ1;
+		private final int chunkX2;
+		private final int chunkZ2;
+		private final long[][] slabs;
+		
+		private Raster(BlockPos start, Box box) {
+			startX = start.getX();
+			startZ = start.getZ();
+			x1 = MathHelper.floor(box.minX);
+			y1 = MathHelper.floor(box.minY);
+			z1 = MathHelper.floor(box.minZ);
+			x2 = MathHelper.ceil(box.maxX);
+			y2 = MathHelper.ceil(box.maxY);
+			z2 = MathHelper.ceil(box.maxZ);
+			chunkX1 = (startX + x1) >> 4;
+			chunkZ1 = (startZ + z1) >> 4;
+			chunkX2 = (startX + x2) >> 4;
+			chunkZ2 = (startZ + z2) >> 4;
+			slabs = new long[(chunkX2 - chunkX1 + 1) * (chunkZ2 - chunkZ1 + 1)][];
+		}
+		
+		public int getMinX() {
+			return x1;
+		}
+		
+		public int getMinY() {
+			return y1;
+		}
+		
+		public int getMinZ() {
+			return z1;
+		}
+		
+		public int getMaxX() {
+			return x2;
+		}
+		
+		public int getMaxY() {
+			return y2;
+		}
+		
+		public int getMaxZ() {
+			return z2;
+		}
+		
+		long getVolume() {
+			return (long) (x2 - x1 + 1) * (y2 - y1 + 1) * (z2 - z1 + 1);
+		}
+		
+		/**
+		 * Checks if point (relative to start) has negative distance, points outside of the box are never inside.
+		 */
+		@Override
+		public boolean contains(int x, int y, int z) {
+			if (x < x1 || y < y1 || z < z1 || x > x2 || y > y2 || z > z2) {
+				return false;
+			}
+			int wx = x + startX;
+			int wz = z + startZ;
+			long[] bits = slabs[getSlab(wx >> 4, wz >> 4)];
+			int index = getIndex(wx, y, wz);
+			return (bits[index >> 6] & (1L << index)) != 0;
+		}
+		
+		private int getSlab(int cx, int cz) {
+			return (cz - chunkZ1) * (chunkX2 - chunkX1 + 1) + (cx - chunkX1);
+		}
+		
+		private int getIndex(int wx, int y, int wz) {
+			return ((y - y1) << 8) | ((wz & 15) << 4) | (wx & 15);
+		}
+	}
+	
+	/**
+	 * Mask of SDF without finite bounding box. Space relative to start is split into 16x16x16 sections,
+	 * missing section is rasterized together with missing sections around it in parallel.
+	 */
+	public static final class SectionMask implements Mask {
+		private final Long2ObjectMap<long[]> sections = new Long2ObjectOpenHashMap<long[]>();
+		private final SDF sdf;
+		private long lastKey = Long.MAX_VALUE;
+		private long[] lastBits;
+		
+		private SectionMask(SDF sdf) {
+			this.sdf = sdf;
+		}
+		
+		@Override
+		public boolean contains(int x, int y, int z) {
+			long key = BlockPos.asLong(x >> 4, y >> 4, z >> 4);
+			if (key != lastKey) {
+				lastBits = sections.get(key);
+				if (lastBits == null) {
+					load(x >> 4, y >> 4, z >> 4);
+					lastBits = sections.get(key);
+				}
+				lastKey = key;
+			}
+			int index = ((y & 15) << 8) | ((z & 15) << 4) | (x & 15);
+			return (lastBits[index >> 6] & (1L << index)) != 0;
+		}
+		
+		private void load(int sx, int sy, int sz) {
+			List<Section> missing = Lists.newArrayList();
+			for (int y = -1; y <= 1; y++) {
+				for (int z = -1; z <= 1; z++) {
+					for (int x = -1; x <= 1; x++) {
+						if (!sections.containsKey(BlockPos.asLong(sx + x, sy + y, sz + z))) {
+							missing.add(new Section(sdf, sx + x, sy + y, sz + z));
+						}
+					}
+				}
+			}
+			ForkJoinTask.invokeAll(missing);
+			missing.forEach((section) -> {
+				sections.put(BlockPos.asLong(section.sx, section.sy, section.sz), section.bits);
+			});
+		}
+	}
+	
+	private static final class Section extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final long[] bits = new long[64];
+		private final SDF sdf;
+		private final int sx;
+		private final int sy;
+		private final int sz;
+		
+		Section(SDF sdf, int sx, int sy, int sz) {
+			this.sdf = sdf;
+			this.sx = sx;
+			this.sy = sy;
+			this.sz = sz;
+		}
+		
+		@Override
+		protected void compute() {
+			for (int index = 0; index < 4096; index++) {
+				int x = (sx << 4) | (index & 15);
+				int y = (sy << 4) | (index >> 8);
+				int z = (sz << 4) | ((index >> 4) & 15);
+				if (sdf.getDistance(x, y, z) < 0) {
+					bits[index >> 6] |= 1L << index;
+				}
+			}
+		}
+	}
+	
+	private static final class Slab extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final SDF sdf;
+		private final Raster raster;
+		private final int cx;
+		private final int cz;
+		
+		Slab(SDF sdf, Raster raster, int cx, int cz) {
+			this.sdf = sdf;
+			this.raster = raster;
+			this.cx = cx;
+			this.cz = cz;
+		}
+		
+		@Override
+		protected void compute() {
+			int x1 = Math.max(raster.x1, (cx << 4) - raster.startX);
+			int z1 = Math.max(raster.z1, (cz << 4) - raster.startZ);
+			int x2 = Math.min(raster.x2, (cx << 4) + 15 - raster.startX);
+			int z2 = Math.min(raster.z2, (cz << 4) + 15 - raster.startZ);
+			long[] bits = new long[(raster.y2 - raster.y1 + 1) << 2];
+			
+			for (int y = raster.y1; y <= raster.y2; y++) {
+				for (int x = x1; x <= x2; x++) {
+					for (int z = z1; z <= z2; z++) {
+						if (sdf.getDistance(x, y, z) < 0) {
+							int index = raster.getIndex(x + raster.startX, y, z + raster.startZ);
+							bits[index >> 6] |= 1L << index;
+						}
+					}
+				}
+			}
+			
+			raster.slabs[raster.getSlab(cx, cz)] = bits;
+		}
+	}
+}
@@ -2,7 +2,10 @@ package ru.betterend.util.sdf.operator;
 
 import net.minecraft.block.BlockState;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Box;
+import ru.betterend.util.MHelper;
 import ru.betterend.util.sdf.SDF;
+import ru.betterend.util.sdf.SDFCompiled;
 
 public abstract class SDFBinary extends SDF {
 	protected SDF sourceA;
@@ -19,10 +22,27 @@ public abstract class SDFBinary extends SDF {
 		return this;
 	}
 	
-	protected void selectValue(float a, float b) {
+	public void selectValue(float a, float b) {
 		firstValue = a < b;
 	}
 	
+	protected void writeProgram(SDFCompiled.Builder builder, int operation, float... params) {
+		builder.write(sourceA);
+		builder.write(sourceB);
+		builder.binary(operation, this, params);
+	}
+	
+	/**
+	 * Writes binary operation which skips second source when point is far from its bounding box.
+	 */
+	protected void writeCulledProgram(SDFCompiled.Builder builder, int operation, int cull) {
+		builder.write(sourceA);
+		int jump = builder.cull(cull, this, sourceB);
+		builder.write(sourceB);
+		builder.binary(operation, this);
+		builder.label(jump);
+	}
+	
 	@Override
 	public BlockState getBlockState(BlockPos pos) {
 		if (firstValue) {
@@ -31,4 +51,28 @@ public abstract class SDFBinary extends SDF {
 			return sourceB.getBlockState(pos);
 		}
 	}
+	
+	@Override
+	protected Box makeBoundingBox() {
+		return sourceA.getBoundingBox().union(sourceB.getBoundingBox());
+	}
+	
+	@Override
+	protected float makeBoundFactor() {
+		return MHelper.min(sourceA.getBoundFactor(), sourceB.getBoundFactor());
+	}
+	
+	@Override
+	public boolean isDeterministic() {
+		return sourceA.isDeterministic() && sourceB.isDeterministic();
+	}
+	
+	/**
+	 * Refreshes both sources and returns box of the bounded one, for operations which distance is never lower than its distance.
+	 */
+	protected Box makeBoundingBox(SDF bounded) {
+		Box boxA = sourceA.getBoundingBox();
+		Box boxB = sourceB.getBoundingBox();
+		return bounded == sourceA ? boxA : boxB;
+	}
 }
@@ -5,18 +5,37 @@ import java.util.function.Consumer;
 import net.minecraft.client.util.math.Vector3f;
 
 public class SDFCoordModify extends SDFUnary {
-	private static final Vector3f POS = new Vector3f();
+	private static final ThreadLocal<Vector3f> POS = ThreadLocal.withInitial(Vector3f::new);
 	private Consumer<Vector3f> function;
+	private boolean deterministic;
 	
 	public SDFCoordModify setFunction(Consumer<Vector3f> function) {
 		this.function = function;
 		return this;
 	}
 	
+	/**
+	 * Marks coordinate function as a pure function of position (no random values or shared state),
+	 * such modifiers can be evaluated in parallel.
+	 */
+	public SDFCoordModify setDeterministic(boolean deterministic) {
+		this.deterministic = deterministic;
+		return this;
+	}
+	
 	@Override
 	public float getDistance(float x, float y, float z) {
-		POS.set(x, y, z);
-		function.accept(POS);
-		return this.source.getDistance(POS.getX(), POS.getY(), POS.getZ());
+		Vector3f pos = POS.get();
+		pos.set(x, y, z);
+		function.accept(pos);
+		return this.source.getDistance(pos.getX(), pos.getY(), pos.getZ());
+	}
+	
+	/**
+	 * Coordinate functions can use random values unless they are marked with {@link #setDeterministic(boolean)}.
+	 */
+	@Override
+	public boolean isDeterministic() {
+		return deterministic && source.isDeterministic();
 	}
 }
@@ -1,6 +1,7 @@
 package ru.betterend.util.sdf.operator;
 
 import ru.betterend.util.MHelper;
+import ru.betterend.util.sdf.SDFCompiled;
 
 public class SDFCopyRotate extends SDFUnary {
 	int count = 1;
@@ -16,4 +17,11 @@ public class SDFCopyRotate extends SDFUnary {
 		float pz = MHelper.length(x, z);
 		return this.source.getDistance(px, y, pz);
 	}
+	
+	@Override
+	public void writeProgram(SDFCompiled.Builder builder) {
+		builder.transform(SDFCompiled.COPY_ROTATE);
+		builder.write(source);
+		builder.restore();
+	}
 }
@@ -3,9 +3,15 @@ package ru.betterend.util.sdf.operator;
 import java.util.function.Function;
 
 import net.minecraft.client.util.math.Vector3f;
+import ru.betterend.util.sdf.SDFCompiled;
 
+/**
+ * Adds function of position to source distance. All displacements of a thread share one position vector
+ * which is set before source evaluation, so displacement with nested displacements receives position of
+ * the last evaluated nested one (as it always worked, shapes depend on it).
+ */
 public class SDFDisplacement extends SDFUnary {
-	private static final Vector3f POS = new Vector3f();
+	private static final ThreadLocal<Vector3f> POS = ThreadLocal.withInitial(Vector3f::new);
 	private Function<Vector3f, Float> displace;
 	
 	public SDFDisplacement setFunction(Function<Vector3f, Float> displace) {
@@ -15,7 +21,35 @@ public class SDFDisplacement extends SDFUnary {
 	
 	@Override
 	public float getDistance(float x, float y, float z) {
-		POS.set(x, y, z);
-		return this.source.getDistance(x, y, z) + displace.apply(POS);
+		Vector3f pos = POS.get();
+		pos.set(x, y, z);
+		return this.source.getDistance(x, y, z) + displace.apply(pos);
+	}
+	
+	/**
+	 * Compiled form of {@link #getDistance(float, float, float)}, called before source evaluation.
+	 */
+	public void beginDisplacement(float x, float y, float z) {
+		POS.get().set(x, y, z);
+	}
+	
+	/**
+	 * Compiled form of {@link #getDistance(float, float, float)}, called after source evaluation.
+	 */
+	public float getDisplacement() {
+		return displace.apply(POS.get());
+	}
+	
+	/**
+	 * Displacement functions can use random values.
+	 */
+	@Override
+	public boolean isDeterministic() {
+		return false;
+	}
+	
+	@Override
+	public void writeProgram(SDFCompiled.Builder builder) {
+		builder.displacement(this, source);
 	}
 }
@@ -1,5 +1,7 @@
 package ru.betterend.util.sdf.operator;
 
+import net.minecraft.util.math.Box;
+
 public class SDFFlatWave extends SDFDisplacement {
 	private int rayCount = 1;
 	private float intensity;
@@ -25,4 +27,14 @@ public class SDFFlatWave extends SDFDisplacement {
 		this.intensity = intensity;
 		return this;
 	}
+	
+	@Override
+	protected Box makeBoundingBox() {
+		return source.getBoundingBox().expand(Math.abs(intensity) / source.getBoundFactor());
+	}
+	
+	@Override
+	public boolean isDeterministic() {
+		return source.isDeterministic();
+	}
 }
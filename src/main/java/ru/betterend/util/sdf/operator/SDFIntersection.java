@@ -1,6 +1,8 @@
 package ru.betterend.util.sdf.operator;
 
+import net.minecraft.util.math.Box;
 import ru.betterend.util.MHelper;
+import ru.betterend.util.sdf.SDFCompiled;
 
 public class SDFIntersection extends SDFBinary {
 	@Override
@@ -10,4 +12,19 @@ public class SDFIntersection extends SDFBinary {
 		this.selectValue(a, b);
 		return MHelper.max(a, b);
 	}
+	
+	@Override
+	public void writeProgram(SDFCompiled.Builder builder) {
+		writeProgram(builder, SDFCompiled.INTERSECTION);
+	}
+	
+	@Override
+	protected Box makeBoundingBox() {
+		return makeBoundingBox(sourceA);
+	}
+	
+	@Override
+	protected float makeBoundFactor() {
+		return sourceA.getBoundFactor();
+	}
 }
@@ -1,8 +1,16 @@
 package ru.betterend.util.sdf.operator;
 
+import ru.betterend.util.sdf.SDFCompiled;
+
 public class SDFInvert extends SDFUnary {
 	@Override
 	public float getDistance(float x, float y, float z) {
 		return -this.source.getDistance(x, y, z);
 	}
+	
+	@Override
+	public void writeProgram(SDFCompiled.Builder builder) {
+		builder.write(source);
+		builder.modify(SDFCompiled.INVERT);
+	}
 }
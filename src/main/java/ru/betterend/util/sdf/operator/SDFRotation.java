@@ -1,10 +1,11 @@
 package ru.betterend.util.sdf.operator;
 
 import net.minecraft.client.util.math.Vector3f;
+import net.minecraft.util.math.Box;
 import net.minecraft.util.math.Quaternion;
 
 public class SDFRotation extends SDFUnary {
-	private static final Vector3f POS = new Vector3f();
+	private static final ThreadLocal<Vector3f> POS = ThreadLocal.withInitial(Vector3f::new);
 	private Quaternion rotation;
 	
 	public SDFRotation setRotation(Vector3f axis, float rotationAngle) {
@@ -14,8 +15,51 @@ public class SDFRotation extends SDFUnary {
 	
 	@Override
 	public float getDistance(float x, float y, float z) {
-		POS.set(x, y, z);
-		POS.rotate(rotation);
-		return source.getDistance(POS.getX(), POS.getY(), POS.getZ());
+		Vector3f pos = POS.get();
+		pos.set(x, y, z);
+		pos.rotate(rotation);
+		return source.getDistance(pos.getX(), pos.getY(), pos.getZ());
+	}
+	
+	/**
+	 * Box around source box corners rotated back (source is evaluated in rotated coordinates),
+	 * slightly expanded to cover float rounding.
+	 */
+	@Override
+	protected Box makeBoundingBox() {
+		Box box = source.getBoundingBox();
+		if (Double.isInfinite(box.minX + box.minY + box.minZ) || Double.isInfinite(box.maxX + box.maxY + box.maxZ)) {
+			return INFINITE_BOX;
+		}
+		
+		Quaternion inverse = new Quaternion(rotation);
+		inverse.conjugate();
+		Vector3f corner = new Vector3f();
+		float minX = Float.POSITIVE_INFINITY;
+		float minY = Float.POSITIVE_INFINITY;
+		float minZ = Float.POSITIVE_INFINITY;
+		float maxX = Float.NEGATIVE_INFINITY;
+		float maxY = Float.NEGATIVE_INFINITY;
+		float maxZ = Float.NEGATIVE_INFINITY;
+		for (int i = 0; i < 8; i++) {
+			corner.set(
+				(float) ((i & 1) == 0 ? box.minX : box.maxX),
+				(float) ((i & 2) == 0 ? box.minY : box.maxY),
+				(float) ((i & 4) == 0 ? box.minZ : box.maxZ)
+			);
+			corner.rotate(inverse);
+			minX = Math.min(minX, corner.getX());
+			minY = Math.min(minY, corner.getY());
+			minZ = Math.min(minZ, corner.getZ());
+			maxX = Math.max(maxX, corner.getX());
+			maxY = Math.max(maxY, corner.getY());
+			maxZ = Math.max(maxZ, corner.getZ());
+		}
+		return new Box(minX, minY, minZ, maxX, maxY, maxZ).expand(0.01);
+	}
+	
+	@Override
+	protected float makeBoundFactor() {
+		return source.getBoundFactor() * 0.57735F;
 	}
 }
@@ -1,5 +1,8 @@
 package ru.betterend.util.sdf.operator;
 
+import net.minecraft.util.math.Box;
+import ru.betterend.util.sdf.SDFCompiled;
+
 public class SDFRound extends SDFUnary {
 	private float radius;
 	
@@ -12,4 +15,16 @@ public class SDFRound extends SDFUnary {
 	public float getDistance(float x, float y, float z) {
 		return this.source.getDistance(x, y, z) - radius;
 	}
+	
+	@Override
+	public void writeProgram(SDFCompiled.Builder builder) {
+		builder.write(source);
+		builder.modify(SDFCompiled.SUBTRACT, radius);
+	}
+	
+	@Override
+	protected Box makeBoundingBox() {
+		Box box = source.getBoundingBox();
+		return radius > 0 ? box.expand(radius / source.getBoundFactor()) : box;
+	}
 }
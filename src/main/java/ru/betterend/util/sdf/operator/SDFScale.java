@@ -1,5 +1,8 @@
 package ru.betterend.util.sdf.operator;
 
+import net.minecraft.util.math.Box;
+import ru.betterend.util.sdf.SDFCompiled;
+
 public class SDFScale extends SDFUnary {
 	private float scale;
 	
@@ -12,4 +15,18 @@ public class SDFScale extends SDFUnary {
 	public float getDistance(float x, float y, float z) {
 		return source.getDistance(x / scale, y / scale, z / scale) * scale;
 	}
+	
+	@Override
+	public void writeProgram(SDFCompiled.Builder builder) {
+		builder.transform(SDFCompiled.SCALE, scale);
+		builder.write(source);
+		builder.restore();
+		builder.modify(SDFCompiled.MULTIPLY, scale);
+	}
+	
+	@Override
+	protected Box makeBoundingBox() {
+		Box box = source.getBoundingBox();
+		return new Box(box.minX * scale, box.minY * scale, box.minZ * scale, box.maxX * scale, box.maxY * scale, box.maxZ * scale);
+	}
 }
@@ -1,5 +1,9 @@
 package ru.betterend.util.sdf.operator;
 
+import net.minecraft.util.math.Box;
+import ru.betterend.util.MHelper;
+import ru.betterend.util.sdf.SDFCompiled;
+
 public class SDFScale3D extends SDFUnary {
 	private float x;
 	private float y;
@@ -16,4 +20,22 @@ public class SDFScale3D extends SDFUnary {
 	public float getDistance(float x, float y, float z) {
 		return source.getDistance(x / this.x, y / this.y, z / this.z);
 	}
+	
+	@Override
+	public void writeProgram(SDFCompiled.Builder builder) {
+		builder.transform(SDFCompiled.SCALE_3D, x, y, z);
+		builder.write(source);
+		builder.restore();
+	}
+	
+	@Override
+	protected Box makeBoundingBox() {
+		Box box = source.getBoundingBox();
+		return new Box(box.minX * x, box.minY * y, box.minZ * z, box.maxX * x, box.maxY * y, box.maxZ * z);
+	}
+	
+	@Override
+	protected float makeBoundFactor() {
+		return source.getBoundFactor() / MHelper.max(x, y, z);
+	}
 }
@@ -1,6 +1,8 @@
 package ru.betterend.util.sdf.operator;
 
+import net.minecraft.util.math.Box;
 import net.minecraft.util.math.MathHelper;
+import ru.betterend.util.sdf.SDFCompiled;
 
 public class SDFSmoothSubtraction extends SDFBinary {
 	private float radius;
@@ -18,4 +20,19 @@ public class SDFSmoothSubtraction extends SDFBinary {
 		float h = MathHelper.clamp(0.5F - 0.5F * (b + a) / radius, 0F, 1F);
 		return MathHelper.lerp(h, b, -a) + radius * h * (1F - h);
 	}
+	
+	@Override
+	public void writeProgram(SDFCompiled.Builder builder) {
+		writeProgram(builder, SDFCompiled.SMOOTH_SUBTRACTION, radius);
+	}
+	
+	@Override
+	protected Box makeBoundingBox() {
+		return makeBoundingBox(sourceB);
+	}
+	
+	@Override
+	protected float makeBoundFactor() {
+		return sourceB.getBoundFactor();
+	}
 }
@@ -1,6 +1,8 @@
 package ru.betterend.util.sdf.operator;
 
+import net.minecraft.util.math.Box;
 import net.minecraft.util.math.MathHelper;
+import ru.betterend.util.sdf.SDFCompiled;
 
 public class SDFSmoothUnion extends SDFBinary {
 	private float radius;
@@ -18,4 +20,14 @@ public class SDFSmoothUnion extends SDFBinary {
 		float h = MathHelper.clamp(0.5F + 0.5F * (b - a) / radius, 0F, 1F);
 		return MathHelper.lerp(h, b, a) - radius * h * (1F - h);
 	}
+	
+	@Override
+	public void writeProgram(SDFCompiled.Builder builder) {
+		writeProgram(builder, SDFCompiled.SMOOTH_UNION, radius);
+	}
+	
+	@Override
+	protected Box makeBoundingBox() {
+		return super.makeBoundingBox().expand(radius * 0.25F / makeBoundFactor());
+	}
 }
@@ -1,13 +1,34 @@
 package ru.betterend.util.sdf.operator;
 
+import net.minecraft.util.math.Box;
 import ru.betterend.util.MHelper;
+import ru.betterend.util.sdf.SDFCompiled;
 
 public class SDFSubtraction extends SDFBinary {
 	@Override
 	public float getDistance(float x, float y, float z) {
 		float a = this.sourceA.getDistance(x, y, z);
+		if (Math.abs(a) < this.sourceB.getBoundDistance(x, y, z)) {
+			this.selectValue(a, Float.POSITIVE_INFINITY);
+			return a;
+		}
 		float b = this.sourceB.getDistance(x, y, z);
 		this.selectValue(a, b);
 		return MHelper.max(a, -b);
 	}
+	
+	@Override
+	public void writeProgram(SDFCompiled.Builder builder) {
+		writeCulledProgram(builder, SDFCompiled.SUBTRACTION, SDFCompiled.CULL_SUBTRACTION);
+	}
+	
+	@Override
+	protected Box makeBoundingBox() {
+		return makeBoundingBox(sourceA);
+	}
+	
+	@Override
+	protected float makeBoundFactor() {
+		return sourceA.getBoundFactor();
+	}
 }
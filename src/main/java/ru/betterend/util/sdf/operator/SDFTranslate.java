@@ -1,5 +1,8 @@
 package ru.betterend.util.sdf.operator;
 
+import net.minecraft.util.math.Box;
+import ru.betterend.util.sdf.SDFCompiled;
+
 public class SDFTranslate extends SDFUnary {
 	float x;
 	float y;
@@ -16,4 +19,16 @@ public class SDFTranslate extends SDFUnary {
 	public float getDistance(float x, float y, float z) {
 		return source.getDistance(x - this.x, y - this.y, z - this.z);
 	}
+	
+	@Override
+	public void writeProgram(SDFCompiled.Builder builder) {
+		builder.transform(SDFCompiled.TRANSLATE, x, y, z);
+		builder.write(source);
+		builder.restore();
+	}
+	
+	@Override
+	protected Box makeBoundingBox() {
+		return source.getBoundingBox().offset(x, y, z);
+	}
 }
@@ -2,6 +2,7 @@ package ru.betterend.util.sdf.operator;
 
 import net.minecraft.block.BlockState;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Box;
 import ru.betterend.util.sdf.SDF;
 
 public abstract class SDFUnary extends SDF {
@@ -16,4 +17,20 @@ public abstract class SDFUnary extends SDF {
 	public BlockState getBlockState(BlockPos pos) {
 		return source.getBlockState(pos);
 	}
+	
+	@Override
+	protected Box makeBoundingBox() {
+		source.getBoundingBox();
+		return INFINITE_BOX;
+	}
+	
+	@Override
+	protected float makeBoundFactor() {
+		return source.getBoundFactor();
+	}
+	
+	@Override
+	public boolean isDeterministic() {
+		return source.isDeterministic();
+	}
 }
@@ -1,13 +1,23 @@
 package ru.betterend.util.sdf.operator;
 
 import ru.betterend.util.MHelper;
+import ru.betterend.util.sdf.SDFCompiled;
 
 public class SDFUnion extends SDFBinary {
 	@Override
 	public float getDistance(float x, float y, float z) {
 		float a = this.sourceA.getDistance(x, y, z);
+		if (a < this.sourceB.getBoundDistance(x, y, z)) {
+			this.selectValue(a, Float.POSITIVE_INFINITY);
+			return a;
+		}
 		float b = this.sourceB.getDistance(x, y, z);
 		this.selectValue(a, b);
 		return MHelper.min(a, b);
 	}
+	
+	@Override
+	public void writeProgram(SDFCompiled.Builder builder) {
+		writeCulledProgram(builder, SDFCompiled.UNION, SDFCompiled.CULL_UNION);
+	}
 }
@@ -1,7 +1,9 @@
 package ru.betterend.util.sdf.primitive;
 
+import net.minecraft.util.math.Box;
 import net.minecraft.util.math.MathHelper;
 import ru.betterend.util.MHelper;
+import ru.betterend.util.sdf.SDFCompiled;
 
 public class SDFCappedCone extends SDFPrimitive {
 	private float radius1;
@@ -25,6 +27,21 @@ public class SDFCappedCone extends SDFPrimitive {
 
 	@Override
 	public float getDistance(float x, float y, float z) {
+		return getDistance(x, y, z, radius1, radius2, height);
+	}
+	
+	@Override
+	public void writeProgram(SDFCompiled.Builder builder) {
+		builder.primitive(SDFCompiled.CAPPED_CONE, radius1, radius2, height);
+	}
+	
+	@Override
+	protected Box makeBoundingBox() {
+		float radius = MHelper.max(radius1, radius2);
+		return new Box(-radius, -height, -radius, radius, height, radius);
+	}
+	
+	public static float getDistance(float x, float y, float z, float radius1, float radius2, float height) {
 		float qx = MHelper.length(x, z);
 		float k2x = radius2 - radius1;
 		float k2y = 2 * height;
@@ -1,7 +1,9 @@
 package ru.betterend.util.sdf.primitive;
 
+import net.minecraft.util.math.Box;
 import net.minecraft.util.math.MathHelper;
 import ru.betterend.util.MHelper;
+import ru.betterend.util.sdf.SDFCompiled;
 
 public class SDFCapsule extends SDFPrimitive {
 	private float radius;
@@ -19,6 +21,20 @@ public class SDFCapsule extends SDFPrimitive {
 	
 	@Override
 	public float getDistance(float x, float y, float z) {
+		return getDistance(x, y, z, radius, height);
+	}
+	
+	@Override
+	public void writeProgram(SDFCompiled.Builder builder) {
+		builder.primitive(SDFCompiled.CAPSULE, radius, height);
+	}
+	
+	@Override
+	protected Box makeBoundingBox() {
+		return new Box(-radius, -radius, -radius, radius, height + radius, radius);
+	}
+	
+	public static float getDistance(float x, float y, float z, float radius, float height) {
 		return MHelper.length(x, y - MathHelper.clamp(y, 0, height), z) - radius;
 	}
 }
@@ -1,8 +1,21 @@
 package ru.betterend.util.sdf.primitive;
 
+import net.minecraft.util.math.Box;
+import ru.betterend.util.sdf.SDFCompiled;
+
 public class SDFFlatland extends SDFPrimitive {
 	@Override
 	public float getDistance(float x, float y, float z) {
 	    return y;
 	}
+	
+	@Override
+	public void writeProgram(SDFCompiled.Builder builder) {
+		builder.primitive(SDFCompiled.FLATLAND);
+	}
+	
+	@Override
+	protected Box makeBoundingBox() {
+		return new Box(Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, 0, Double.POSITIVE_INFINITY);
+	}
 }
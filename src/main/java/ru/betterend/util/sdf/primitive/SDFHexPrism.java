@@ -1,6 +1,8 @@
 package ru.betterend.util.sdf.primitive;
 
+import net.minecraft.util.math.Box;
 import ru.betterend.util.MHelper;
+import ru.betterend.util.sdf.SDFCompiled;
 
 public class SDFHexPrism extends SDFPrimitive {
 	private float radius;
@@ -18,6 +20,26 @@ public class SDFHexPrism extends SDFPrimitive {
 
 	@Override
 	public float getDistance(float x, float y, float z) {
+		return getDistance(x, y, z, radius, height);
+	}
+	
+	@Override
+	public void writeProgram(SDFCompiled.Builder builder) {
+		builder.primitive(SDFCompiled.HEX_PRISM, radius, height);
+	}
+	
+	@Override
+	protected Box makeBoundingBox() {
+		float width = radius * 1.154701F;
+		return new Box(-width, -height, -radius, width, height, radius);
+	}
+	
+	@Override
+	protected float makeBoundFactor() {
+		return 0.866025F;
+	}
+	
+	public static float getDistance(float x, float y, float z, float radius, float height) {
 		float px = Math.abs(x);
 		float py = Math.abs(y);
 		float pz = Math.abs(z);
@@ -1,7 +1,9 @@
 package ru.betterend.util.sdf.primitive;
 
+import net.minecraft.util.math.Box;
 import net.minecraft.util.math.MathHelper;
 import ru.betterend.util.MHelper;
+import ru.betterend.util.sdf.SDFCompiled;
 
 public class SDFLine extends SDFPrimitive {
 	private float radius;
@@ -33,6 +35,20 @@ public class SDFLine extends SDFPrimitive {
 
 	@Override
 	public float getDistance(float x, float y, float z) {
+		return getDistance(x, y, z, radius, x1, y1, z1, x2, y2, z2);
+	}
+	
+	@Override
+	public void writeProgram(SDFCompiled.Builder builder) {
+		builder.primitive(SDFCompiled.LINE, radius, x1, y1, z1, x2, y2, z2);
+	}
+	
+	@Override
+	protected Box makeBoundingBox() {
+		return new Box(x1, y1, z1, x2, y2, z2).expand(radius);
+	}
+	
+	public static float getDistance(float x, float y, float z, float radius, float x1, float y1, float z1, float x2, float y2, float z2) {
 		float pax = x - x1;
 		float pay = y - y1;
 		float paz = z - z1;
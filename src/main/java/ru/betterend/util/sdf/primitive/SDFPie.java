@@ -1,7 +1,9 @@
 package ru.betterend.util.sdf.primitive;
 
+import net.minecraft.util.math.Box;
 import net.minecraft.util.math.MathHelper;
 import ru.betterend.util.MHelper;
+import ru.betterend.util.sdf.SDFCompiled;
 
 public class SDFPie extends SDFPrimitive {
 	private float sin;
@@ -21,6 +23,20 @@ public class SDFPie extends SDFPrimitive {
 	
 	@Override
 	public float getDistance(float x, float y, float z) {
+		return getDistance(x, y, z, sin, cos, radius);
+	}
+	
+	@Override
+	public void writeProgram(SDFCompiled.Builder builder) {
+		builder.primitive(SDFCompiled.PIE, sin, cos, radius);
+	}
+	
+	@Override
+	protected Box makeBoundingBox() {
+		return new Box(-radius, -radius, -radius, radius, radius, radius);
+	}
+	
+	public static float getDistance(float x, float y, float z, float sin, float cos, float radius) {
 		float px = Math.abs(x);
 	    float l = MHelper.length(px, y, z) - radius;
 	    float m = MHelper.dot(px, z, sin, cos);
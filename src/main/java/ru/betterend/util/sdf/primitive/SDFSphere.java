@@ -1,6 +1,8 @@
 package ru.betterend.util.sdf.primitive;
 
+import net.minecraft.util.math.Box;
 import ru.betterend.util.MHelper;
+import ru.betterend.util.sdf.SDFCompiled;
 
 public class SDFSphere extends SDFPrimitive {
 	private float radius;
@@ -12,6 +14,20 @@ public class SDFSphere extends SDFPrimitive {
 	
 	@Override
 	public float getDistance(float x, float y, float z) {
+		return getDistance(x, y, z, radius);
+	}
+	
+	@Override
+	public void writeProgram(SDFCompiled.Builder builder) {
+		builder.primitive(SDFCompiled.SPHERE, radius);
+	}
+	
+	@Override
+	protected Box makeBoundingBox() {
+		return new Box(-radius, -radius, -radius, radius, radius, radius);
+	}
+	
+	public static float getDistance(float x, float y, float z, float radius) {
 		return MHelper.length(x, y, z) - radius;
 	}
 }
@@ -80,6 +80,10 @@ public class EndBiome {
 	public boolean containsSubBiome(EndBiome biome) {
 		return subbiomes.contains(biome);
 	}
+	
+	public List<EndBiome> getSubBiomes() {
+		return subbiomes;
+	}
 
 	public EndBiome getSubBiome(Random random) {
 		float chance = random.nextFloat() * maxSubBiomeChance;
@@ -65,7 +65,7 @@ public class DragonTreeFeature extends DefaultFeature {
 		radius = MHelper.randRange(1.2F, 2.3F, random);
 		SDF function = SplineHelper.buildSDF(spline, radius, 1.2F, (bpos) -> {
 			return EndBlocks.DRAGON_TREE.bark.getDefaultState();
-		});
+		}).compile();
 		
 		function.setReplaceFunction(REPLACE);
 		function.setPostProcess(POST);
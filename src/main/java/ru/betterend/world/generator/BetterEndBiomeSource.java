@@ -6,6 +6,7 @@ import com.google.common.collect.Lists;
 import com.mojang.serialization.Codec;
 import com.mojang.serialization.codecs.RecordCodecBuilder;
 
+import net.minecraft.util.math.ChunkPos;
 import net.minecraft.util.math.noise.SimplexNoiseSampler;
 import net.minecraft.util.registry.Registry;
 import net.minecraft.util.registry.RegistryLookupCodec;
@@ -31,6 +32,11 @@ public class BetterEndBiomeSource extends BiomeSource {
 		})).apply(instance, instance.stable(BetterEndBiomeSource::new));
 	});
 	private static final OpenSimplexNoise SMALL_NOISE = new OpenSimplexNoise(8324);
+	private static final byte CENTER = 0;
+	private static final byte BARRENS = 1;
+	private static final byte LAND = 2;
+	private static final byte VOID = 3;
+	private final ThreadLocal<BiomeBatch> batches = ThreadLocal.withInitial(BiomeBatch::new);
 	private final Registry<Biome> biomeRegistry;
 	private final SimplexNoiseSampler noise;
 	private final Biome centerBiome;
@@ -68,36 +74,105 @@ public class BetterEndBiomeSource extends BiomeSource {
 		return list;
 	}
 
+	/**
+	 * Biomes don't depend on height, so all samples of a chunk (chunk population, structure and feature checks)
+	 * are served from a per-thread 4x4 batch. First sample of a batch is computed alone, so single position
+	 * queries cost the same as direct sampling. Second position of the same batch fills the whole batch with
+	 * one {@link BiomeMap#fillBiomes(int, int, int, int, int, EndBiome[])} call per used map, which computes
+	 * raw biomes shared by edge checks of neighbour samples only once.
+	 */
 	@Override
 	public Biome getBiomeForNoiseGen(int biomeX, int biomeY, int biomeZ) {
-		boolean hasVoid = !TerrainGenerator.useNewGenerator() || !TerrainGenerator.noRingVoid();
-		long i = (long) biomeX * (long) biomeX;
-		long j = (long) biomeZ * (long) biomeZ;
-		if (hasVoid && i + j <= 65536L) return this.centerBiome;
+		BiomeBatch batch = batches.get();
+		long pos = ChunkPos.toLong(biomeX >> 2, biomeZ >> 2);
+		int index = (biomeX & 3) | ((biomeZ & 3) << 2);
+		int mask = 1 << index;
+		if (batch.pos != pos) {
+			batch.pos = pos;
+			batch.filled = mask;
+			batch.biomes[index] = getBiome(biomeX, biomeZ);
+		}
+		else if ((batch.filled & mask) == 0) {
+			fillBatch(batch, biomeX >> 2 << 2, biomeZ >> 2 << 2, batch.biomes);
+			batch.filled = BiomeBatch.FULL;
+		}
+		return batch.biomes[index];
+	}
+	
+	/**
+	 * Fills biomes of 4x4 biome positions starting at (biomeX, biomeZ), biome of (biomeX + i, biomeZ + j) is stored
+	 * at i + j * 4. Result is the same as with {@link #getBiomeForNoiseGen(int, int, int)} for each position, but
+	 * the thread batch is not changed, so scans don't evict batches of chunk generation.
+	 */
+	public void fillBiomes(int biomeX, int biomeZ, Biome[] out) {
+		fillBatch(batches.get(), biomeX, biomeZ, out);
+	}
+	
+	private void fillBatch(BiomeBatch batch, int startX, int startZ, Biome[] out) {
+		boolean land = false;
+		boolean voidBiomes = false;
+		for (int index = 0; index < 16; index++) {
+			byte type = getType(startX + (index & 3), startZ + (index >> 2));
+			batch.types[index] = type;
+			land |= type == LAND;
+			voidBiomes |= type == VOID;
+		}
 		
-		if (biomeX == 0 && biomeZ == 0) {
-			mapLand.clearCache();
-			mapVoid.clearCache();
+		if (land) {
+			mapLand.fillBiomes(startX << 2, startZ << 2, 4, 4, 4, batch.land);
+		}
+		if (voidBiomes) {
+			mapVoid.fillBiomes(startX << 2, startZ << 2, 4, 4, 4, batch.voidBiomes);
 		}
 		
-		if (TerrainGenerator.useNewGenerator()) {
-			if (TerrainGenerator.isLand(biomeX, biomeZ)) {
-				return mapLand.getBiome(biomeX << 2, biomeZ << 2).getActualBiome();
-			}
-			else {
-				return mapVoid.getBiome(biomeX << 2, biomeZ << 2).getActualBiome();
+		for (int index = 0; index < 16; index++) {
+			switch (batch.types[index]) {
+				case CENTER:
+					out[index] = centerBiome;
+					break;
+				case BARRENS:
+					out[index] = barrens;
+					break;
+				case LAND:
+					out[index] = batch.land[index].getActualBiome();
+					break;
+				default:
+					out[index] = batch.voidBiomes[index].getActualBiome();
 			}
 		}
-		else {
-			float height = TheEndBiomeSource.getNoiseAt(noise, (biomeX >> 1) + 1, (biomeZ >> 1) + 1) + (float) SMALL_NOISE.eval(biomeX, biomeZ) * 5;
+	}
 	
-			if (height > -20F && height < -5F) {
+	private Biome getBiome(int biomeX, int biomeZ) {
+		switch (getType(biomeX, biomeZ)) {
+			case CENTER:
+				return centerBiome;
+			case BARRENS:
 				return barrens;
-			}
-			
-			EndBiome endBiome = height < -10F ? mapVoid.getBiome(biomeX << 2, biomeZ << 2) : mapLand.getBiome(biomeX << 2, biomeZ << 2);
-			return endBiome.getActualBiome();
+			case LAND:
+				return mapLand.getBiome(biomeX << 2, biomeZ << 2).getActualBiome();
+			default:
+				return mapVoid.getBiome(biomeX << 2, biomeZ << 2).getActualBiome();
+		}
+	}
+	
+	private byte getType(int biomeX, int biomeZ) {
+		boolean hasVoid = !TerrainGenerator.useNewGenerator() || !TerrainGenerator.noRingVoid();
+		long i = (long) biomeX * (long) biomeX;
+		long j = (long) biomeZ * (long) biomeZ;
+		if (hasVoid && i + j <= 65536L) {
+			return CENTER;
 		}
+		
+		if (TerrainGenerator.useNewGenerator()) {
+			return TerrainGenerator.isLand(biomeX, biomeZ) ? LAND : VOID;
+		}
+		
+		float height = TheEndBiomeSource.getNoiseAt(noise, (biomeX >> 1) + 1, (biomeZ >> 1) + 1) + (float) SMALL_NOISE.eval(biomeX, biomeZ) * 5;
+		if (height > -20F && height < -5F) {
+			return BARRENS;
+		}
+		
+		return height >= -10F ? LAND : VOID;
 	}
 
 	@Override
@@ -113,4 +188,15 @@ public class BetterEndBiomeSource extends BiomeSource {
 	public static void register() {
 		Registry.register(Registry.BIOME_SOURCE, BetterEnd.makeID("better_end_biome_source"), CODEC);
 	}
+	
+	private static final class BiomeBatch {
+		static final int FULL = 0xFFFF;
+		final Biome[] biomes = new Biome[16];
+		final EndBiome[] land = new EndBiome[16];
+		final EndBiome[] voidBiomes = new EndBiome[16];
+		final byte[] types = new byte[16];
+		/** Bit mask of computed cells */
+		int filled;
+		long pos;
+	}
 }
@@ -26,6 +26,16 @@ public class BiomeChunk
 			for (int z = 0; z < WIDTH; z++)
 				biomes[x][z] = PreBio[offsetXZ(x, random)][offsetXZ(z, random)].getSubBiome(random);
 	}
+	
+	BiomeChunk(EndBiome[][] biomes)
+	{
+		this.biomes = biomes;
+	}
+	
+	EndBiome[][] getBiomes()
+	{
+		return biomes;
+	}
 
 	public EndBiome getBiome(int x, int z)
 	{
@@ -0,0 +1,216 @@
+package ru.betterend.world.generator;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+import java.util.function.LongFunction;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.minecraft.util.math.ChunkPos;
+import ru.betterend.BetterEnd;
+import ru.betterend.util.LongCache;
+import ru.betterend.world.biome.EndBiome;
+
+/**
+ * Disk cache of biome chunks inside of the world save. Chunks are grouped into regions of 32x32 chunks, each
+ * region is a memory-mapped file with presence flags of all chunks followed by palette indices (one byte per
+ * biome). Directory name is a hash of seed, biome sizes, biome palette and all picker and sub-biome chances,
+ * so changed generator options, biome set or biome configs use new files.
+ */
+public class BiomeChunkStorage {
+	private static final Set<BiomeChunkStorage> STORAGES = Sets.newConcurrentHashSet();
+	private static final int VERSION = 3;
+	private static final int REGION_SHIFT = 5;
+	private static final int REGION_MASK = (1 << REGION_SHIFT) - 1;
+	private static final int REGION_CHUNKS = 1 << (REGION_SHIFT << 1);
+	private static final int CHUNK_BYTES = BiomeChunk.WIDTH * BiomeChunk.WIDTH;
+	private static final int FILE_SIZE = REGION_CHUNKS + REGION_CHUNKS * CHUNK_BYTES;
+	private static final int REGION_CACHE_SIZE = 64;
+	private static final int REGION_CACHE_CONCURRENCY = 4;
+	
+	private static volatile Path saveDirectory;
+	
+	private final LongCache<Region> regions = new LongCache<Region>(REGION_CACHE_SIZE, REGION_CACHE_CONCURRENCY, Region::force);
+	private final LongFunction<Region> regionFactory = this::openRegion;
+	private final Object2IntMap<EndBiome> indices = new Object2IntOpenHashMap<EndBiome>();
+	private final List<EndBiome> palette = Lists.newArrayList();
+	private final Path directory;
+	private volatile boolean closed;
+	
+	private BiomeChunkStorage(Path root, long seed, int size, BiomePicker picker) {
+		indices.defaultReturnValue(-1);
+		long hash = VERSION;
+		hash = hash * 31 + seed;
+		hash = hash * 31 + size;
+		hash = hash * 31 + GeneratorOptions.getBiomeSizeLand();
+		hash = hash * 31 + GeneratorOptions.getBiomeSizeVoid();
+		for (EndBiome biome: picker.getBiomes()) {
+			hash = addToHash(hash, biome);
+			for (EndBiome subBiome: biome.getSubBiomes()) {
+				hash = addToHash(hash, subBiome);
+			}
+		}
+		directory = root.resolve(Long.toHexString(hash));
+	}
+	
+	/**
+	 * Opens storage in the directory of current world, returns null if there is no world being loaded.
+	 */
+	public static BiomeChunkStorage open(long seed, int size, BiomePicker picker) {
+		Path root = saveDirectory;
+		if (root == null) {
+			return null;
+		}
+		BiomeChunkStorage storage = new BiomeChunkStorage(root, seed, size, picker);
+		STORAGES.add(storage);
+		return storage;
+	}
+	
+	/**
+	 * Sets biome cache directory of the world which is loaded by the server.
+	 */
+	public static void setSaveDirectory(Path directory) {
+		saveDirectory = directory;
+	}
+	
+	/**
+	 * Writes all open regions to disk and closes all storages, called when server stops.
+	 */
+	public static void closeAll() {
+		saveDirectory = null;
+		for (BiomeChunkStorage storage: STORAGES) {
+			storage.close();
+		}
+		STORAGES.clear();
+	}
+	
+	/**
+	 * Chances are hashed for every entry of picker and sub-biome lists (biome can be present several times),
+	 * palette stores each biome once.
+	 */
+	private long addToHash(long hash, EndBiome biome) {
+		if (!indices.containsKey(biome)) {
+			indices.put(biome, palette.size());
+			palette.add(biome);
+		}
+		hash = hash * 31 + biome.getID().toString().hashCode();
+		hash = hash * 31 + Float.floatToIntBits(biome.getGenChance());
+		return hash;
+	}
+	
+	private void close() {
+		closed = true;
+		regions.clear();
+	}
+	
+	/**
+	 * Returns stored biomes of the chunk or null if chunk was not stored.
+	 */
+	public EndBiome[][] read(long pos) {
+		if (closed) {
+			return null;
+		}
+		Region region = getRegion(pos);
+		if (region.buffer == null) {
+			return null;
+		}
+		
+		int index = getIndex(pos);
+		int offset = REGION_CHUNKS + index * CHUNK_BYTES;
+		EndBiome[][] biomes = new EndBiome[BiomeChunk.WIDTH][BiomeChunk.WIDTH];
+		synchronized (region) {
+			if (region.buffer.get(index) == 0) {
+				return null;
+			}
+			for (int i = 0; i < CHUNK_BYTES; i++) {
+				int value = region.buffer.get(offset + i) & 255;
+				if (value >= palette.size()) {
+					return null;
+				}
+				biomes[i & BiomeChunk.MASK_WIDTH][i >> 4] = palette.get(value);
+			}
+		}
+		return biomes;
+	}
+	
+	/**
+	 * Stores biomes of the chunk. Biome data is written before presence flag, regions are forced to disk when
+	 * they are evicted from the cache and when storage is closed.
+	 */
+	public void write(long pos, EndBiome[][] biomes) {
+		if (closed) {
+			return;
+		}
+		Region region = getRegion(pos);
+		if (region.buffer == null || palette.size() > 256) {
+			return;
+		}
+		
+		byte[] data = new byte[CHUNK_BYTES];
+		for (int i = 0; i < CHUNK_BYTES; i++) {
+			int value = indices.getInt(biomes[i & BiomeChunk.MASK_WIDTH][i >> 4]);
+			if (value < 0) {
+				return;
+			}
+			data[i] = (byte) value;
+		}
+		
+		int index = getIndex(pos);
+		int offset = REGION_CHUNKS + index * CHUNK_BYTES;
+		synchronized (region) {
+			for (int i = 0; i < CHUNK_BYTES; i++) {
+				region.buffer.put(offset + i, data[i]);
+			}
+			region.buffer.put(index, (byte) 1);
+		}
+	}
+	
+	private Region getRegion(long pos) {
+		ChunkPos chunk = new ChunkPos(pos);
+		return regions.get(ChunkPos.toLong(chunk.x >> REGION_SHIFT, chunk.z >> REGION_SHIFT), regionFactory);
+	}
+	
+	private static int getIndex(long pos) {
+		ChunkPos chunk = new ChunkPos(pos);
+		return ((chunk.z & REGION_MASK) << REGION_SHIFT) | (chunk.x & REGION_MASK);
+	}
+	
+	private Region openRegion(long pos) {
+		ChunkPos region = new ChunkPos(pos);
+		Path file = directory.resolve("r." + region.x + "." + region.z + ".bin");
+		try {
+			Files.createDirectories(directory);
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+				return new Region(channel.map(MapMode.READ_WRITE, 0, FILE_SIZE));
+			}
+		}
+		catch (IOException ex) {
+			BetterEnd.LOGGER.warning("Can't open biome cache region {}", file, ex);
+			return new Region(null);
+		}
+	}
+	
+	private static final class Region {
+		final MappedByteBuffer buffer;
+		
+		Region(MappedByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+		
+		synchronized void force() {
+			if (buffer != null) {
+				buffer.force();
+			}
+		}
+	}
+}
@@ -1,41 +1,106 @@
 package ru.betterend.world.generator;
 
-import java.util.Map;
-
-import com.google.common.collect.Maps;
-
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import net.minecraft.util.math.ChunkPos;
 import net.minecraft.world.gen.ChunkRandom;
 import ru.betterend.noise.OpenSimplexNoise;
+import ru.betterend.util.LongCache;
 import ru.betterend.util.MHelper;
 import ru.betterend.world.biome.EndBiome;
 
 public class BiomeMap {
-	private static final ChunkRandom RANDOM = new ChunkRandom();
+	private static final int CACHE_SIZE = 1024;
+	private static final int CACHE_CONCURRENCY = 16;
 	
-	private final Map<ChunkPos, BiomeChunk> maps = Maps.newHashMap();
+	private final LongCache<BiomeChunk> maps = new LongCache<BiomeChunk>(CACHE_SIZE, CACHE_CONCURRENCY);
 	private final int size;
 	private final int sizeXZ;
 	private final int depth;
 	private final OpenSimplexNoise noiseX;
 	private final OpenSimplexNoise noiseZ;
 	private final BiomePicker picker;
+	private final long seed;
+	private volatile BiomeChunkStorage storage;
 	
 	public BiomeMap(long seed, int size, BiomePicker picker) {
-		maps.clear();
-		RANDOM.setSeed(seed);
-		noiseX = new OpenSimplexNoise(RANDOM.nextLong());
-		noiseZ = new OpenSimplexNoise(RANDOM.nextLong());
+		ChunkRandom random = new ChunkRandom();
+		random.setSeed(seed);
+		noiseX = new OpenSimplexNoise(random.nextLong());
+		noiseZ = new OpenSimplexNoise(random.nextLong());
 		this.sizeXZ = size;
 		depth = (int) Math.ceil(Math.log(size) / Math.log(2)) - 2;
 		this.size = 1 << depth;
 		this.picker = picker;
+		this.seed = seed;
+	}
+	
+	public long getCacheHits() {
+		return maps.getHits();
 	}
 	
-	public void clearCache() {
-		if (maps.size() > 32) {
-			maps.clear();
+	public long getCacheMisses() {
+		return maps.getMisses();
+	}
+	
+	private BiomeChunk makeChunk(long pos) {
+		BiomeChunkStorage storage = getStorage();
+		if (storage != null) {
+			EndBiome[][] biomes = storage.read(pos);
+			if (biomes != null) {
+				return new BiomeChunk(biomes);
+			}
+		}
+		
+		ChunkPos cpos = new ChunkPos(pos);
+		ChunkRandom random = new ChunkRandom();
+		random.setTerrainSeed(cpos.x, cpos.z);
+		BiomeChunk chunk = new BiomeChunk(this, random, picker);
+		
+		if (storage != null) {
+			storage.write(pos, chunk.getBiomes());
+		}
+		return chunk;
+	}
+	
+	/**
+	 * Disk cache is opened on first use, biome pickers are complete only after biome registry mutation.
+	 * Maps which are used without loaded world have no disk cache.
+	 */
+	private BiomeChunkStorage getStorage() {
+		if (!GeneratorOptions.useBiomeCache()) {
+			return null;
+		}
+		BiomeChunkStorage storage = this.storage;
+		if (storage == null) {
+			synchronized (this) {
+				storage = this.storage;
+				if (storage == null) {
+					storage = BiomeChunkStorage.open(seed, sizeXZ, picker);
+					if (storage == null) {
+						return null;
+					}
+					this.storage = storage;
+				}
+			}
 		}
+		return storage;
+	}
+	
+	/**
+	 * Raw biome with memoization in the raw map, which is shared between samples of one batch.
+	 */
+	private EndBiome getRawBiome(int x, int z, Long2ObjectMap<EndBiome> raw) {
+		if (raw == null) {
+			return getRawBiome(x, z);
+		}
+		long key = ChunkPos.toLong(x, z);
+		EndBiome biome = raw.get(key);
+		if (biome == null) {
+			biome = getRawBiome(x, z);
+			raw.put(key, biome);
+		}
+		return biome;
 	}
 	
 	private EndBiome getRawBiome(int bx, int bz) {
@@ -67,19 +132,39 @@ public class BiomeMap {
 			z += (bx / 2) & 1;
 		}
 		
-		ChunkPos cpos = new ChunkPos(MHelper.floor(x / BiomeChunk.WIDTH), MHelper.floor(z / BiomeChunk.WIDTH));
-		BiomeChunk chunk = maps.get(cpos);
-		if (chunk == null) {
-			RANDOM.setTerrainSeed(cpos.x, cpos.z);
-			chunk = new BiomeChunk(this, RANDOM, picker);
-			maps.put(cpos, chunk);
-		}
+		long cpos = ChunkPos.toLong(MHelper.floor(x / BiomeChunk.WIDTH), MHelper.floor(z / BiomeChunk.WIDTH));
+		BiomeChunk chunk = maps.get(cpos, this::makeChunk);
 		
 		return chunk.getBiome(MHelper.floor(x), MHelper.floor(z));
 	}
 	
 	public EndBiome getBiome(int x, int z) {
-		EndBiome biome = getRawBiome(x, z);
+		return getBiome(x, z, null);
+	}
+	
+	/**
+	 * Fills biomes of w x h rectangle starting at (startX, startZ), biome of (startX + i, startZ + j) is stored at i + j * w.
+	 */
+	public void fillBiomes(int startX, int startZ, int w, int h, EndBiome[] out) {
+		fillBiomes(startX, startZ, w, h, 1, out);
+	}
+	
+	/**
+	 * Fills biomes of w x h samples starting at (startX, startZ) with given step, biome of (startX + i * step, startZ + j * step)
+	 * is stored at i + j * w. Result is the same as with {@link #getBiome(int, int)} for each sample, but raw biomes which
+	 * are shared by neighbour samples in edge checks are computed only once.
+	 */
+	public void fillBiomes(int startX, int startZ, int w, int h, int step, EndBiome[] out) {
+		Long2ObjectMap<EndBiome> raw = new Long2ObjectOpenHashMap<EndBiome>(w * h * 2);
+		for (int j = 0; j < h; j++) {
+			for (int i = 0; i < w; i++) {
+				out[i + j * w] = getBiome(startX + i * step, startZ + j * step, raw);
+			}
+		}
+	}
+	
+	private EndBiome getBiome(int x, int z, Long2ObjectMap<EndBiome> raw) {
+		EndBiome biome = getRawBiome(x, z, raw);
 		
 		if (biome.hasEdge() || (biome.hasParentBiome() && biome.getParentBiome().hasEdge())) {
 			EndBiome search = biome;
@@ -88,14 +173,14 @@ public class BiomeMap {
 			}
 			int d = (int) Math.ceil(search.getEdgeSize() / 4F) << 2;
 			
-			boolean edge = !search.isSame(getRawBiome(x + d, z));
-			edge = edge || !search.isSame(getRawBiome(x - d, z));
-			edge = edge || !search.isSame(getRawBiome(x, z + d));
-			edge = edge || !search.isSame(getRawBiome(x, z - d));
-			edge = edge || !search.isSame(getRawBiome(x - 1, z - 1));
-			edge = edge || !search.isSame(getRawBiome(x - 1, z + 1));
-			edge = edge || !search.isSame(getRawBiome(x + 1, z - 1));
-			edge = edge || !search.isSame(getRawBiome(x + 1, z + 1));
+			boolean edge = !search.isSame(getRawBiome(x + d, z, raw));
+			edge = edge || !search.isSame(getRawBiome(x - d, z, raw));
+			edge = edge || !search.isSame(getRawBiome(x, z + d, raw));
+			edge = edge || !search.isSame(getRawBiome(x, z - d, raw));
+			edge = edge || !search.isSame(getRawBiome(x - 1, z - 1, raw));
+			edge = edge || !search.isSame(getRawBiome(x - 1, z + 1, raw));
+			edge = edge || !search.isSame(getRawBiome(x + 1, z - 1, raw));
+			edge = edge || !search.isSame(getRawBiome(x + 1, z + 1, raw));
 			
 			if (edge) {
 				biome = search.getEdge();
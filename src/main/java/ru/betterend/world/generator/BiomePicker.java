@@ -10,13 +10,17 @@ import com.google.common.collect.Sets;
 import net.minecraft.util.Identifier;
 import ru.betterend.world.biome.EndBiome;
 
+/**
+ * Weighted biome picker. Biome generation chances are cumulative (each biome mutates maximal chance), random
+ * value in range of maximal chance selects the first biome with greater chance through {@link ChanceTable}.
+ */
 public class BiomePicker {
 	private final Set<Identifier> immutableIDs = Sets.newHashSet();
 	private final List<EndBiome> biomes = Lists.newArrayList();
 	private float maxChanceUnmutable = 0;
 	private float maxChance = 0;
 	private int biomeCount = 0;
-	private WeighTree tree;
+	private ChanceTable<EndBiome> table;
 	
 	public void addBiome(EndBiome biome) {
 		maxChance = biome.mutateGenChance(maxChance);
@@ -38,7 +42,7 @@ public class BiomePicker {
 	}
 	
 	public EndBiome getBiome(Random random) {
-		return tree.getBiome(random.nextFloat() * maxChance);
+		return table.get(random.nextFloat() * maxChance);
 	}
 	
 	public List<EndBiome> getBiomes() {
@@ -50,6 +54,13 @@ public class BiomePicker {
 	}
 	
 	public void rebuild() {
-		tree = new WeighTree(biomes);
+		if (biomes.isEmpty()) {
+			return;
+		}
+		float[] chances = new float[biomes.size()];
+		for (int i = 0; i < chances.length; i++) {
+			chances[i] = biomes.get(i).getGenChance();
+		}
+		table = new ChanceTable<EndBiome>(biomes, chances);
 	}
 }
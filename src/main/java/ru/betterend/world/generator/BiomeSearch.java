@@ -0,0 +1,196 @@
+package ru.betterend.world.generator;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.biome.Biome;
+import net.minecraft.world.biome.source.BiomeSource;
+import ru.betterend.BetterEnd;
+
+/**
+ * Asynchronous biome search. Chunks are scanned in square rings around start position (coarse step),
+ * all 4x4 biome positions of each chunk are tested (fine step), {@link BetterEndBiomeSource} fills them
+ * with one batch call.
+ * Rings are split between threads of a worker pool, result is the nearest matching position and doesn't
+ * depend on thread count.
+ */
+public class BiomeSearch {
+	private static final ForkJoinPool POOL = new ForkJoinPool(Math.max(Runtime.getRuntime().availableProcessors() - 1, 1));
+	private static final int SEGMENT_SIZE = 8;
+	private static final int MAX_RADIUS = 8000;
+	
+	private final CompletableFuture<BlockPos> result = new CompletableFuture<BlockPos>();
+	private final AtomicInteger rings = new AtomicInteger();
+	private final BiomeSource source;
+	private final Predicate<Biome> predicate;
+	private final BlockPos start;
+	private final int maxRing;
+	private volatile boolean cancelled;
+	
+	private BiomeSearch(BiomeSource source, BlockPos start, int radius, Predicate<Biome> predicate) {
+		this.source = source;
+		this.start = start;
+		this.predicate = predicate;
+		this.maxRing = Math.min(radius, MAX_RADIUS) >> 4;
+	}
+	
+	/**
+	 * Starts search of the nearest biome matching predicate in radius (in blocks, up to 8000) around start position.
+	 */
+	public static BiomeSearch start(BiomeSource source, BlockPos start, int radius, Predicate<Biome> predicate) {
+		BiomeSearch search = new BiomeSearch(source, start, radius, predicate);
+		POOL.execute(search::run);
+		return search;
+	}
+	
+	/**
+	 * Future with found position (center of biome cell at start height) or null if nothing was found.
+	 */
+	public CompletableFuture<BlockPos> getResult() {
+		return result;
+	}
+	
+	/**
+	 * Part of scanned rings, from 0 to 1.
+	 */
+	public float getProgress() {
+		return result.isDone() ? 1F : (float) rings.get() / (maxRing + 1);
+	}
+	
+	public void cancel() {
+		cancelled = true;
+		result.cancel(false);
+	}
+	
+	private void run() {
+		try {
+			long best = Long.MAX_VALUE;
+			int centerX = start.getX() >> 4;
+			int centerZ = start.getZ() >> 4;
+			for (int ring = 0; ring <= maxRing && !cancelled; ring++) {
+				// Chunks of this ring are at least (ring - 1) chunks away
+				long minDistance = (long) Math.max(ring - 1, 0) << 4;
+				if (best != Long.MAX_VALUE && minDistance * minDistance > getDistance(best)) {
+					break;
+				}
+				
+				int count = ring == 0 ? 1 : ring << 3;
+				best = Math.min(best, new Segment(centerX, centerZ, ring, 0, count).invoke());
+				rings.incrementAndGet();
+			}
+			
+			if (!cancelled) {
+				result.complete(best == Long.MAX_VALUE ? null : getPos(best));
+			}
+		}
+		catch (RuntimeException ex) {
+			BetterEnd.LOGGER.warning("Biome search around {} failed", start, ex);
+			result.completeExceptionally(ex);
+		}
+	}
+	
+	/**
+	 * Packs squared distance (upper bits) and biome cell offset from start cell (lower bits), smaller
+	 * values are closer positions. Offsets are limited to 12 bits, which is enough for search radius.
+	 */
+	private static long pack(long distance, int dx, int dz) {
+		return distance << 24 | (long) (dx & 4095) << 12 | (dz & 4095);
+	}
+	
+	private static long getDistance(long packed) {
+		return packed >>> 24;
+	}
+	
+	private BlockPos getPos(long packed) {
+		int dx = (int) (packed << 40 >> 52);
+		int dz = (int) (packed << 52 >> 52);
+		int x = ((start.getX() >> 2) + dx) << 2;
+		int z = ((start.getZ() >> 2) + dz) << 2;
+		return new BlockPos(x + 2, start.getY(), z + 2);
+	}
+	
+	/**
+	 * Chunk of the ring by index, index goes along the ring perimeter.
+	 */
+	private static long getChunk(int centerX, int centerZ, int ring, int index) {
+		if (ring == 0) {
+			return BlockPos.asLong(centerX, 0, centerZ);
+		}
+		int side = ring << 1;
+		int edge = index / side;
+		int offset = index % side;
+		switch (edge) {
+			case 0: return BlockPos.asLong(centerX - ring + offset, 0, centerZ - ring);
+			case 1: return BlockPos.asLong(centerX + ring, 0, centerZ - ring + offset);
+			case 2: return BlockPos.asLong(centerX + ring - offset, 0, centerZ + ring);
+			default: return BlockPos.asLong(centerX - ring, 0, centerZ + ring - offset);
+		}
+	}
+	
+	private void fillBiomes(int biomeX, int biomeY, int biomeZ, Biome[] biomes) {
+		if (source instanceof BetterEndBiomeSource) {
+			((BetterEndBiomeSource) source).fillBiomes(biomeX, biomeZ, biomes);
+		}
+		else {
+			for (int index = 0; index < 16; index++) {
+				biomes[index] = source.getBiomeForNoiseGen(biomeX | (index & 3), biomeY, biomeZ | (index >> 2));
+			}
+		}
+	}
+	
+	private final class Segment extends RecursiveTask<Long> {
+		private static final long serialVersionUID = 1L;
+		private final int centerX;
+		private final int centerZ;
+		private final int ring;
+		private final int from;
+		private final int to;
+		
+		Segment(int centerX, int centerZ, int ring, int from, int to) {
+			this.centerX = centerX;
+			this.centerZ = centerZ;
+			this.ring = ring;
+			this.from = from;
+			this.to = to;
+		}
+		
+		@Override
+		protected Long compute() {
+			if (to - from > SEGMENT_SIZE) {
+				int middle = (from + to) >>> 1;
+				Segment left = new Segment(centerX, centerZ, ring, from, middle);
+				Segment right = new Segment(centerX, centerZ, ring, middle, to);
+				left.fork();
+				long value = right.compute();
+				return Math.min(value, left.join());
+			}
+			
+			long best = Long.MAX_VALUE;
+			int startX = start.getX() >> 2;
+			int startY = start.getY() >> 2;
+			int startZ = start.getZ() >> 2;
+			Biome[] biomes = new Biome[16];
+			for (int i = from; i < to && !cancelled; i++) {
+				long chunk = getChunk(centerX, centerZ, ring, i);
+				int biomeX = BlockPos.unpackLongX(chunk) << 2;
+				int biomeZ = BlockPos.unpackLongZ(chunk) << 2;
+				fillBiomes(biomeX, startY, biomeZ, biomes);
+				for (int index = 0; index < 16; index++) {
+					int x = biomeX | (index & 3);
+					int z = biomeZ | (index >> 2);
+					if (predicate.test(biomes[index])) {
+						int dx = x - startX;
+						int dz = z - startZ;
+						long distance = ((long) dx * dx + (long) dz * dz) << 4;
+						best = Math.min(best, pack(distance, dx, dz));
+					}
+				}
+			}
+			return best;
+		}
+	}
+}
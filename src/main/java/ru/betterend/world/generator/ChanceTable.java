@@ -0,0 +1,93 @@
+package ru.betterend.world.generator;
+
+import java.util.List;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Selects values by cumulative chances. Value is the first one with chance greater than sampled number (last
+ * value if there is no such chance), same as binary tree of chances did, so existing seeds keep their layout.
+ * Non-decreasing chances use guide table (cutpoint method): sampled number selects a start index and few
+ * neighbour chances are compared, which takes constant expected time. Other chances use the tree search
+ * without tree nodes.
+ */
+public class ChanceTable<T> {
+	private final List<T> values;
+	private final float[] chances;
+	private final int[] guide;
+	private final float scale;
+	
+	public ChanceTable(List<T> values, float[] chances) {
+		if (values.isEmpty() || values.size() != chances.length) {
+			throw new IllegalArgumentException("Chance table requires one chance for each value");
+		}
+		this.values = Lists.newArrayList(values);
+		this.chances = chances.clone();
+		
+		int count = chances.length;
+		float max = chances[count - 1];
+		boolean sorted = true;
+		for (int i = 1; i < count; i++) {
+			sorted &= chances[i] >= chances[i - 1];
+		}
+		
+		if (sorted && max > 0 && !Float.isInfinite(max)) {
+			scale = count / max;
+			guide = new int[count];
+			int index = 0;
+			for (int cell = 0; cell < count; cell++) {
+				float start = cell / scale;
+				while (index < count - 1 && start >= chances[index]) {
+					index++;
+				}
+				guide[cell] = index;
+			}
+		}
+		else {
+			scale = 0;
+			guide = null;
+		}
+	}
+	
+	public T get(float value) {
+		return values.get(getIndex(value));
+	}
+	
+	public int getIndex(float value) {
+		return guide == null ? searchTree(value) : searchGuide(value);
+	}
+	
+	/**
+	 * Starts from guide cell and moves to the first chance greater than value, both directions are checked
+	 * since value can be rounded to the neighbour cell.
+	 */
+	private int searchGuide(float value) {
+		int last = chances.length - 1;
+		int index = guide[Math.max(Math.min((int) (value * scale), last), 0)];
+		while (index > 0 && value < chances[index - 1]) {
+			index--;
+		}
+		while (index < last && value >= chances[index]) {
+			index++;
+		}
+		return index;
+	}
+	
+	/**
+	 * Same branches as in recursive tree: range is split at its middle chance, left part includes middle value.
+	 */
+	private int searchTree(float value) {
+		int min = 0;
+		int max = chances.length;
+		while (max - min > 2) {
+			int index = min + ((max - min) >> 1);
+			if (value < chances[index]) {
+				max = index + 1;
+			}
+			else {
+				min = index;
+			}
+		}
+		return max - min == 1 || value < chances[min] ? min : min + 1;
+	}
+}
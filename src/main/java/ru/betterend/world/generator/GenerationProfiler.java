@@ -0,0 +1,252 @@
+package ru.betterend.world.generator;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import net.minecraft.structure.StructurePiece;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.registry.Registry;
+import net.minecraft.world.gen.feature.Feature;
+import ru.betterend.config.ConfigWriter;
+import ru.betterend.config.Configs;
+import ru.betterend.util.JsonFactory;
+
+/**
+ * Opt-in generation profiler. Features, structure pieces and terrain sampling are measured in scopes, each scope
+ * adds call count, time and placed blocks to striped counters of its entry. Blocks are counted when they are
+ * placed through {@link ru.betterend.util.BlocksHelper} or {@link ru.betterend.util.ChunkWriter}. When profiler
+ * is disabled scopes are null and cost only one volatile read, block counting costs one plain field read.
+ */
+public class GenerationProfiler {
+	public static final String TERRAIN_DENSITY = "terrain/density";
+	public static final String TERRAIN_LAND = "terrain/land_tile";
+	private static final Map<Object, Entry> ENTRIES = Maps.newConcurrentMap();
+	private static final ThreadLocal<long[]> PLACED_BLOCKS = ThreadLocal.withInitial(() -> new long[1]);
+	private static final ThreadLocal<Deque<Scope>> METHOD_SCOPES = ThreadLocal.withInitial(ArrayDeque::new);
+	private static final String DUMP_FILE = "generation_profile.json";
+	private static ScheduledExecutorService dumpExecutor;
+	private static volatile boolean enabled;
+	private static boolean countBlocks;
+	private static int dumpInterval;
+	
+	public static void init() {
+		dumpInterval = Configs.GENERATOR_CONFIG.getIntRoot("profilerDumpInterval", 60);
+		setEnabled(Configs.GENERATOR_CONFIG.getBooleanRoot("profiler", false));
+	}
+	
+	public static boolean isEnabled() {
+		return enabled;
+	}
+	
+	public static synchronized void setEnabled(boolean enabled) {
+		GenerationProfiler.enabled = enabled;
+		countBlocks = enabled;
+		if (!enabled && dumpExecutor != null) {
+			dumpExecutor.shutdown();
+			dumpExecutor = null;
+		}
+		else if (enabled && dumpExecutor == null && dumpInterval > 0) {
+			dumpExecutor = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+				Thread thread = new Thread(runnable, "BetterEnd Profiler Dump");
+				thread.setDaemon(true);
+				return thread;
+			});
+			dumpExecutor.scheduleAtFixedRate(() -> {
+				if (GenerationProfiler.enabled) {
+					dump();
+				}
+			}, dumpInterval, dumpInterval, TimeUnit.SECONDS);
+		}
+	}
+	
+	/**
+	 * Starts measurement for the key (feature, structure piece class or name), returns null if profiler is disabled.
+	 */
+	public static Scope begin(Object key) {
+		return enabled ? open(key, null) : null;
+	}
+	
+	public static void end(Scope scope) {
+		if (scope != null) {
+			scope.end();
+		}
+	}
+	
+	/**
+	 * Starts measurement of method for injection at its head, scope is ended by {@link #endMethod(Object)}
+	 * with the same owner at method return.
+	 */
+	public static void beginMethod(Object owner, Object key) {
+		if (enabled) {
+			METHOD_SCOPES.get().push(open(key, owner));
+		}
+	}
+	
+	/**
+	 * Ends the last method scope of the owner. Scopes above it belong to methods which were left with an
+	 * exception, they are discarded.
+	 */
+	public static void endMethod(Object owner) {
+		Deque<Scope> scopes = METHOD_SCOPES.get();
+		for (Scope scope: scopes) {
+			if (scope.owner == owner) {
+				Scope last = scopes.pop();
+				while (last != scope) {
+					last = scopes.pop();
+				}
+				scope.end();
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Called for each block placed into generated chunk.
+	 */
+	public static void onBlockPlaced() {
+		if (countBlocks) {
+			PLACED_BLOCKS.get()[0]++;
+		}
+	}
+	
+	/**
+	 * Called for blocks written directly into chunk sections.
+	 */
+	public static void onBlocksPlaced(int count) {
+		if (countBlocks) {
+			PLACED_BLOCKS.get()[0] += count;
+		}
+	}
+	
+	public static void reset() {
+		ENTRIES.clear();
+	}
+	
+	/**
+	 * Returns entries sorted by total time, most expensive first.
+	 */
+	public static List<Entry> getEntries() {
+		List<Entry> entries = Lists.newArrayList(ENTRIES.values());
+		Collections.sort(entries, (e1, e2) -> Long.compare(e2.getTotalNanos(), e1.getTotalNanos()));
+		return entries;
+	}
+	
+	public static File dump() {
+		JsonArray array = new JsonArray();
+		for (Entry entry: getEntries()) {
+			JsonObject object = new JsonObject();
+			object.addProperty("name", entry.getName());
+			object.addProperty("calls", entry.getCalls());
+			object.addProperty("total_ms", entry.getTotalNanos() / 1000000.0);
+			object.addProperty("average_us", entry.getAverageNanos() / 1000.0);
+			object.addProperty("max_us", entry.getMaxNanos() / 1000.0);
+			object.addProperty("blocks", entry.getBlocks());
+			array.add(object);
+		}
+		JsonObject root = new JsonObject();
+		root.addProperty("time", System.currentTimeMillis());
+		root.add("entries", array);
+		
+		ConfigWriter.MOD_CONFIG_DIR.mkdirs();
+		File file = new File(ConfigWriter.MOD_CONFIG_DIR, DUMP_FILE);
+		JsonFactory.storeJson(file, root);
+		return file;
+	}
+	
+	private static Scope open(Object key, Object owner) {
+		Entry entry = ENTRIES.get(key);
+		if (entry == null) {
+			entry = ENTRIES.computeIfAbsent(key, (k) -> new Entry(getName(k)));
+		}
+		return new Scope(entry, PLACED_BLOCKS.get(), owner);
+	}
+	
+	private static String getName(Object key) {
+		if (key instanceof Feature) {
+			Identifier id = Registry.FEATURE.getId((Feature<?>) key);
+			return "feature/" + (id == null ? key.getClass().getSimpleName() : id.toString());
+		}
+		if (key instanceof Class && StructurePiece.class.isAssignableFrom((Class<?>) key)) {
+			return "piece/" + ((Class<?>) key).getSimpleName();
+		}
+		return key.toString();
+	}
+	
+	public static final class Scope {
+		private final Entry entry;
+		private final long[] placedBlocks;
+		private final long startBlocks;
+		private final long startTime;
+		private final Object owner;
+		
+		private Scope(Entry entry, long[] placedBlocks, Object owner) {
+			this.entry = entry;
+			this.placedBlocks = placedBlocks;
+			this.owner = owner;
+			this.startBlocks = placedBlocks[0];
+			this.startTime = System.nanoTime();
+		}
+		
+		private void end() {
+			entry.add(System.nanoTime() - startTime, placedBlocks[0] - startBlocks);
+		}
+	}
+	
+	public static final class Entry {
+		private final LongAdder calls = new LongAdder();
+		private final LongAdder nanos = new LongAdder();
+		private final LongAdder blocks = new LongAdder();
+		private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+		private final String name;
+		
+		private Entry(String name) {
+			this.name = name;
+		}
+		
+		private void add(long time, long placed) {
+			calls.increment();
+			nanos.add(time);
+			blocks.add(placed);
+			maxNanos.accumulate(time);
+		}
+		
+		public String getName() {
+			return name;
+		}
+		
+		public long getCalls() {
+			return calls.sum();
+		}
+		
+		public long getTotalNanos() {
+			return nanos.sum();
+		}
+		
+		public long getAverageNanos() {
+			long calls = getCalls();
+			return calls == 0 ? 0 : getTotalNanos() / calls;
+		}
+		
+		public long getMaxNanos() {
+			return maxNanos.get();
+		}
+		
+		public long getBlocks() {
+			return blocks.sum();
+		}
+	}
+}
@@ -5,10 +5,14 @@ import ru.betterend.config.Configs;
 public class GeneratorOptions {
 	private static int biomeSizeLand;
 	private static int biomeSizeVoid;
+	private static boolean biomeCache;
+	private static boolean coarseCaveNoise;
 	
 	public static void init() {
 		biomeSizeLand = Configs.GENERATOR_CONFIG.getIntRoot("biomeSizeLand", 256);
 		biomeSizeVoid = Configs.GENERATOR_CONFIG.getIntRoot("biomeSizeVoid", 256);
+		biomeCache = Configs.GENERATOR_CONFIG.getBooleanRoot("biomeCache", false);
+		coarseCaveNoise = Configs.GENERATOR_CONFIG.getBooleanRoot("coarseCaveNoise", false);
 	}
 
 	public static int getBiomeSizeLand() {
@@ -18,4 +22,12 @@ public class GeneratorOptions {
 	public static int getBiomeSizeVoid() {
 		return biomeSizeVoid;
 	}
+	
+	public static boolean useBiomeCache() {
+		return biomeCache;
+	}
+	
+	public static boolean useCoarseCaveNoise() {
+		return coarseCaveNoise;
+	}
 }
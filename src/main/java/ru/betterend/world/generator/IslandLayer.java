@@ -2,27 +2,37 @@ package ru.betterend.world.generator;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.Random;
+import java.util.function.LongFunction;
 
-import com.google.common.collect.Maps;
-
-import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Box;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.MathHelper;
 import ru.betterend.noise.OpenSimplexNoise;
+import ru.betterend.util.LongCache;
 import ru.betterend.util.MHelper;
 import ru.betterend.util.sdf.SDF;
-import ru.betterend.util.sdf.operator.SDFScale;
 import ru.betterend.util.sdf.operator.SDFSmoothUnion;
 import ru.betterend.util.sdf.operator.SDFTranslate;
 import ru.betterend.util.sdf.operator.SDFUnion;
 import ru.betterend.util.sdf.primitive.SDFCappedCone;
 
 public class IslandLayer {
-	private static final Random RANDOM = new Random();
 	private static final SDF ISLAND;
+	private static final float ISLAND_MIN_X;
+	private static final float ISLAND_MIN_Y;
+	private static final float ISLAND_MIN_Z;
+	private static final float ISLAND_MAX_X;
+	private static final float ISLAND_MAX_Y;
+	private static final float ISLAND_MAX_Z;
+	private static final float ISLAND_FACTOR;
+	private static final Island EMPTY = new Island(0, 0, 0, 0);
+	private static final int ISLAND_CACHE_SIZE = 1024;
+	private static final int ISLAND_CACHE_CONCURRENCY = 16;
 	
-	private final List<BlockPos> positions = new ArrayList<BlockPos>(9);
-	private final Map<BlockPos, SDF> islands = Maps.newHashMap();
+	private final List<Island> positions = new ArrayList<Island>(9);
+	private final LongCache<Island> islands;
+	private final LongFunction<Island> islandFactory = this::makeIsland;
 	private final OpenSimplexNoise density;
 	private final double distance;
 	private final float scale;
@@ -30,6 +40,9 @@ public class IslandLayer {
 	private final int minY;
 	private final int maxY;
 	private final long center;
+	private boolean hasPositions;
+	private int lastX;
+	private int lastZ;
 	
 	public IslandLayer(int seed, double distance, float scale, int center, int heightVariation) {
 		this.distance = distance;
@@ -39,6 +52,26 @@ public class IslandLayer {
 		this.minY = center - heightVariation;
 		this.maxY = center + heightVariation;
 		this.center = MHelper.floor(1000 / distance);
+		this.islands = new LongCache<Island>(ISLAND_CACHE_SIZE, ISLAND_CACHE_CONCURRENCY);
+	}
+	
+	/**
+	 * Creates layer with own positions which shares island cache and noise with the source layer,
+	 * used to give each worldgen thread its own layer.
+	 */
+	public IslandLayer(IslandLayer layer) {
+		this.distance = layer.distance;
+		this.density = layer.density;
+		this.scale = layer.scale;
+		this.seed = layer.seed;
+		this.minY = layer.minY;
+		this.maxY = layer.maxY;
+		this.center = layer.center;
+		this.islands = layer.islands;
+	}
+	
+	public int getSeed() {
+		return seed;
 	}
 	
 	private int getSeed(int x, int z) {
@@ -48,62 +81,103 @@ public class IslandLayer {
 	}
 	
 	public void updatePositions(double x, double z) {
-		positions.clear();
-		
 		int ix = MHelper.floor(x / distance);
 		int iz = MHelper.floor(z / distance);
 		
+		// Neighbour columns usually land in the same cell, positions only depend on it
+		if (hasPositions && ix == lastX && iz == lastZ) {
+			return;
+		}
+		hasPositions = true;
+		lastX = ix;
+		lastZ = iz;
+		positions.clear();
+		
 		for (int pox = -1; pox < 2; pox++) {
 			int px = pox + ix;
 			for (int poz = -1; poz < 2; poz++) {
 				int pz = poz + iz;
-				if (TerrainGenerator.noRingVoid() || (long) px + (long) pz > center) {
-					RANDOM.setSeed(getSeed(px, pz));
-					double posX = (px + RANDOM.nextFloat()) * distance;
-					double posY = MHelper.randRange(minY, maxY, RANDOM);
-					double posZ = (pz + RANDOM.nextFloat()) * distance;
-					if (density.eval(posX * 0.01, posZ * 0.01) > 0) {
-						positions.add(new BlockPos(posX, posY, posZ));
-					}
+				Island island = islands.get(ChunkPos.toLong(px, pz), islandFactory);
+				if (island != EMPTY) {
+					positions.add(island);
 				}
 			}
 		}
 	}
 	
-	private SDF getIsland(BlockPos pos) {
-		SDF island = islands.get(pos);
-		if (island == null) {
-			RANDOM.setSeed(getSeed(pos.getX(), pos.getZ()));
-			island = new SDFScale().setScale(RANDOM.nextFloat() + 0.5F).setSource(ISLAND);
-			islands.put(pos, island);
+	/**
+	 * Island of the cell with packed coordinates, cells without island return {@link #EMPTY}.
+	 */
+	private Island makeIsland(long cell) {
+		ChunkPos pos = new ChunkPos(cell);
+		int px = pos.x;
+		int pz = pos.z;
+		if (TerrainGenerator.noRingVoid() || (long) px + (long) pz > center) {
+			Random random = new Random(getSeed(px, pz));
+			double posX = (px + random.nextFloat()) * distance;
+			double posY = MHelper.randRange(minY, maxY, random);
+			double posZ = (pz + random.nextFloat()) * distance;
+			if (density.eval(posX * 0.01, posZ * 0.01) > 0) {
+				int x = MathHelper.floor(posX);
+				int y = MathHelper.floor(posY);
+				int z = MathHelper.floor(posZ);
+				random.setSeed(getSeed(x, z));
+				return new Island(x, y, z, random.nextFloat() + 0.5F);
+			}
 		}
-		return island;
+		return EMPTY;
 	}
 	
-	private float getRelativeDistance(SDF sdf, BlockPos center, double px, double py, double pz) {
-		float x = (float) (px - center.getX()) / scale;
-		float y = (float) (py - center.getY()) / scale;
-		float z = (float) (pz - center.getZ()) / scale;
-		return sdf.getDistance(x, y, z);
-	}
-	
-	private float calculateSDF(double x, double y, double z) {
-		float distance = 10;
-		for (BlockPos pos: positions) {
-			SDF island = getIsland(pos);
-			float dist = getRelativeDistance(island, pos, x, y, z);
-			distance = MHelper.min(distance, dist);
+	/**
+	 * Minimum of distance and distances to all islands. Islands with bounding box farther than current
+	 * minimum can't change it, so they are skipped without evaluation.
+	 */
+	private float calculateSDF(double px, double py, double pz, float distance) {
+		for (int i = 0; i < positions.size(); i++) {
+			Island island = positions.get(i);
+			float islandScale = island.scale;
+			float x = (float) (px - island.x) / scale / islandScale;
+			float y = (float) (py - island.y) / scale / islandScale;
+			float z = (float) (pz - island.z) / scale / islandScale;
+			if (ISLAND.getBoundDistance(x, y, z) * islandScale < distance) {
+				float dist = ISLAND.getDistance(x, y, z) * islandScale;
+				distance = MHelper.min(distance, dist);
+			}
 		}
 		return distance;
 	}
 	
 	public float getDensity(double x, double y, double z) {
-		return -calculateSDF(x, y, z);
+		return -calculateSDF(x, y, z, 10);
+	}
+	
+	/**
+	 * Same as maximum of density and {@link #getDensity(double, double, double)}, but islands which can't
+	 * exceed density are not evaluated.
+	 */
+	public float getDensity(double x, double y, double z, float density) {
+		return -calculateSDF(x, y, z, MHelper.min(10, -density));
 	}
 	
-	public void clearCache() {
-		if (islands.size() > 32) {
-			islands.clear();
+	/**
+	 * Extends height range (minimum and maximum world y) with heights where density of this layer can be
+	 * above given negative density in the column, positions must be updated for the column first.
+	 */
+	public void getHeightRange(double px, double pz, float density, double[] range) {
+		for (int i = 0; i < positions.size(); i++) {
+			Island island = positions.get(i);
+			float islandScale = island.scale;
+			float x = (float) (px - island.x) / scale / islandScale;
+			float z = (float) (pz - island.z) / scale / islandScale;
+			
+			// Island distance is at least factor * scale * box distance, it can be below -density only closer than limit
+			float limit = -density / (ISLAND_FACTOR * islandScale);
+			float dh = MHelper.max(MHelper.max(ISLAND_MIN_X - x, x - ISLAND_MAX_X), MHelper.max(ISLAND_MIN_Z - z, z - ISLAND_MAX_Z));
+			if (dh < limit) {
+				double height = scale * islandScale;
+				range[0] = Math.min(range[0], island.y + (ISLAND_MIN_Y - limit) * height - 1);
+				range[1] = Math.max(range[1], island.y + (ISLAND_MAX_Y + limit) * height + 1);
+			}
 		}
 	}
 	
@@ -122,6 +196,31 @@ public class IslandLayer {
 		SDF coneBottom = new SDFUnion().setSourceA(cone1).setSourceB(cone2);
 		SDF coneTop = new SDFUnion().setSourceA(cone3).setSourceB(cone4);
 		
-		ISLAND = new SDFSmoothUnion().setRadius(0.01F).setSourceA(coneTop).setSourceB(coneBottom);
+		ISLAND = new SDFSmoothUnion().setRadius(0.01F).setSourceA(coneTop).setSourceB(coneBottom).compile();
+		Box box = ISLAND.getBoundingBox();
+		ISLAND_MIN_X = (float) box.minX;
+		ISLAND_MIN_Y = (float) box.minY;
+		ISLAND_MIN_Z = (float) box.minZ;
+		ISLAND_MAX_X = (float) box.maxX;
+		ISLAND_MAX_Y = (float) box.maxY;
+		ISLAND_MAX_Z = (float) box.maxZ;
+		ISLAND_FACTOR = ISLAND.getBoundFactor();
+	}
+	
+	/**
+	 * Island position (in blocks) and scale of one layer cell.
+	 */
+	private static final class Island {
+		final int x;
+		final int y;
+		final int z;
+		final float scale;
+		
+		Island(int x, int y, int z, float scale) {
+			this.x = x;
+			this.y = y;
+			this.z = z;
+			this.scale = scale;
+		}
 	}
 }
@@ -1,21 +1,26 @@
 package ru.betterend.world.generator;
 
 import java.util.Random;
-import java.util.concurrent.locks.ReentrantLock;
 
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import net.minecraft.util.math.ChunkPos;
 import ru.betterend.config.Configs;
 import ru.betterend.noise.OpenSimplexNoise;
+import ru.betterend.util.LongCache;
 import ru.betterend.util.MHelper;
+import ru.betterend.world.generator.GenerationProfiler.Scope;
 
 public class TerrainGenerator {
-	private static final ReentrantLock LOCKER = new ReentrantLock();
+	private static final ThreadLocal<SamplerState> STATE = new ThreadLocal<SamplerState>();
 	private static final double SCALE_XZ = 8.0;
 	private static final double SCALE_Y = 4.0;
 	private static final int CENTER = MHelper.floor(500 / SCALE_XZ);
+	private static final int COLUMN_CACHE_SIZE = 1024;
+	private static final int LAND_TILE_CACHE_SIZE = 256;
+	private static final int LAND_TILE_CACHE_CONCURRENCY = 16;
 	
-	private static IslandLayer largeIslands;
-	private static IslandLayer mediumIslands;
-	private static IslandLayer smallIslands;
+	private static volatile IslandLayer[] layers;
+	private static volatile LongCache<long[]> landTiles;
 	private static OpenSimplexNoise noise1;
 	private static OpenSimplexNoise noise2;
 	private static boolean newGenerator;
@@ -28,11 +33,46 @@ public class TerrainGenerator {
 	
 	public static void initNoise(long seed) {
 		Random random = new Random(seed);
-		largeIslands = new IslandLayer(random.nextInt(), 300, 200, 63, 0);
-		mediumIslands = new IslandLayer(random.nextInt(), 150, 100, 63, 16);
-		smallIslands = new IslandLayer(random.nextInt(), 60, 50, 63, 32);
+		IslandLayer largeIslands = new IslandLayer(random.nextInt(), 300, 200, 63, 0);
+		IslandLayer mediumIslands = new IslandLayer(random.nextInt(), 150, 100, 63, 16);
+		IslandLayer smallIslands = new IslandLayer(random.nextInt(), 60, 50, 63, 32);
 		noise1 = new OpenSimplexNoise(random.nextInt());
 		noise2 = new OpenSimplexNoise(random.nextInt());
+		layers = new IslandLayer[] {largeIslands, mediumIslands, smallIslands};
+		landTiles = new LongCache<long[]>(LAND_TILE_CACHE_SIZE, LAND_TILE_CACHE_CONCURRENCY);
+	}
+	
+	/**
+	 * Island positions and column caches keep mutable state, so every worldgen thread gets its own copy
+	 * of them, island caches are shared. Copies are rebuilt when the world seed changes.
+	 */
+	private static SamplerState getState() {
+		IslandLayer[] layers = TerrainGenerator.layers;
+		SamplerState state = STATE.get();
+		if (state == null || state.layers != layers) {
+			state = new SamplerState(layers);
+			STATE.set(state);
+		}
+		return state;
+	}
+	
+	/**
+	 * Returns distorted position of noise column, neighbour chunks and biome queries sample same columns.
+	 * @return array with x and z distorted coordinates
+	 */
+	private static double[] getColumnPos(SamplerState state, int x, int z) {
+		long key = (long) x << 32 | (z & 0xFFFFFFFFL);
+		double[] pos = state.columns.getAndMoveToLast(key);
+		if (pos == null) {
+			double distortion1 = noise1.eval(x * 0.1, z * 0.1) * 20 + noise2.eval(x * 0.2, z * 0.2) * 10 + noise1.eval(x * 0.4, z * 0.4) * 5;
+			double distortion2 = noise2.eval(x * 0.1, z * 0.1) * 20 + noise1.eval(x * 0.2, z * 0.2) * 10 + noise2.eval(x * 0.4, z * 0.4) * 5;
+			pos = new double[] {(double) x * SCALE_XZ + distortion1, (double) z * SCALE_XZ + distortion2};
+			if (state.columns.size() >= COLUMN_CACHE_SIZE) {
+				state.columns.removeFirst();
+			}
+			state.columns.putAndMoveToLast(key, pos);
+		}
+		return pos;
 	}
 	
 	public static boolean canGenerate(int x, int z) {
@@ -48,16 +88,19 @@ public class TerrainGenerator {
 	}
 	
 	public static void fillTerrainDensity(double[] buffer, int x, int z) {
-		LOCKER.lock();
-		
-		largeIslands.clearCache();
-		mediumIslands.clearCache();
-		smallIslands.clearCache();
+		Scope scope = GenerationProfiler.begin(GenerationProfiler.TERRAIN_DENSITY);
+		fillTerrainDensity(getState(), buffer, x, z);
+		GenerationProfiler.end(scope);
+	}
+	
+	private static void fillTerrainDensity(SamplerState state, double[] buffer, int x, int z) {
+		IslandLayer largeIslands = state.largeIslands;
+		IslandLayer mediumIslands = state.mediumIslands;
+		IslandLayer smallIslands = state.smallIslands;
 		
-		double distortion1 = noise1.eval(x * 0.1, z * 0.1) * 20 + noise2.eval(x * 0.2, z * 0.2) * 10 + noise1.eval(x * 0.4, z * 0.4) * 5;
-		double distortion2 = noise2.eval(x * 0.1, z * 0.1) * 20 + noise1.eval(x * 0.2, z * 0.2) * 10 + noise2.eval(x * 0.4, z * 0.4) * 5;
-		double px = (double) x * SCALE_XZ + distortion1;
-		double pz = (double) z * SCALE_XZ + distortion2;
+		double[] pos = getColumnPos(state, x, z);
+		double px = pos[0];
+		double pz = pos[1];
 		
 		largeIslands.updatePositions(px, pz);
 		mediumIslands.updatePositions(px, pz);
@@ -66,8 +109,8 @@ public class TerrainGenerator {
 		for (int y = 0; y < buffer.length; y++) {
 			double py = (double) y * SCALE_Y;
 			float dist = largeIslands.getDensity(px, py, pz);
-			dist = dist > 1 ? dist : MHelper.max(dist, mediumIslands.getDensity(px, py, pz));
-			dist = dist > 1 ? dist : MHelper.max(dist, smallIslands.getDensity(px, py, pz));
+			dist = dist > 1 ? dist : mediumIslands.getDensity(px, py, pz, dist);
+			dist = dist > 1 ? dist : smallIslands.getDensity(px, py, pz, dist);
 			if (dist > -0.5F) {
 				dist += noise1.eval(px * 0.01, py * 0.01, pz * 0.01) * 0.04;
 				dist += noise2.eval(px * 0.05, py * 0.05, pz * 0.05) * 0.02;
@@ -75,8 +118,6 @@ public class TerrainGenerator {
 			}
 			buffer[y] = dist;
 		}
-		
-		LOCKER.unlock();
 	}
 	
 	/**
@@ -85,37 +126,88 @@ public class TerrainGenerator {
 	 * @param z - biome pos z
 	 */
 	public static boolean isLand(int x, int z) {
-		LOCKER.lock();
-		
-		x >>= 1;
-		z >>= 1;
+		long[] tile = landTiles.get(ChunkPos.toLong(x >> 6, z >> 6), TerrainGenerator::makeLandTile);
+		return ((tile[z & 63] >>> (x & 63)) & 1) != 0;
+	}
+	
+	/**
+	 * Land mask of 64x64 biome positions, row z is stored as bits of one long. Each terrain column
+	 * covers 2x2 biome positions, so it is computed once for all of them.
+	 */
+	private static long[] makeLandTile(long key) {
+		Scope scope = GenerationProfiler.begin(GenerationProfiler.TERRAIN_LAND);
+		ChunkPos pos = new ChunkPos(key);
+		int startX = pos.x << 5;
+		int startZ = pos.z << 5;
+		SamplerState state = getState();
+		long[] tile = new long[64];
+		for (int cz = 0; cz < 32; cz++) {
+			for (int cx = 0; cx < 32; cx++) {
+				if (isLandColumn(state, startX + cx, startZ + cz)) {
+					long bits = 3L << (cx << 1);
+					tile[cz << 1] |= bits;
+					tile[(cz << 1) | 1] |= bits;
+				}
+			}
+		}
+		GenerationProfiler.end(scope);
+		return tile;
+	}
+	
+	private static boolean isLandColumn(SamplerState state, int x, int z) {
+		IslandLayer largeIslands = state.largeIslands;
+		IslandLayer mediumIslands = state.mediumIslands;
+		IslandLayer smallIslands = state.smallIslands;
 		
-		double distortion1 = noise1.eval(x * 0.1, z * 0.1) * 20 + noise2.eval(x * 0.2, z * 0.2) * 10 + noise1.eval(x * 0.4, z * 0.4) * 5;
-		double distortion2 = noise2.eval(x * 0.1, z * 0.1) * 20 + noise1.eval(x * 0.2, z * 0.2) * 10 + noise2.eval(x * 0.4, z * 0.4) * 5;
-		double px = (double) x * SCALE_XZ + distortion1;
-		double pz = (double) z * SCALE_XZ + distortion2;
+		double[] pos = getColumnPos(state, x, z);
+		double px = pos[0];
+		double pz = pos[1];
 		
 		largeIslands.updatePositions(px, pz);
 		mediumIslands.updatePositions(px, pz);
 		smallIslands.updatePositions(px, pz);
 		
-		for (int y = 0; y < 32; y++) {
+		// Below -0.5 noise is not added, so heights where all layers are below it can't be land
+		double[] range = state.heightRange;
+		range[0] = Double.POSITIVE_INFINITY;
+		range[1] = Double.NEGATIVE_INFINITY;
+		largeIslands.getHeightRange(px, pz, -0.5F, range);
+		mediumIslands.getHeightRange(px, pz, -0.5F, range);
+		smallIslands.getHeightRange(px, pz, -0.5F, range);
+		int minY = Math.max(MHelper.floor(range[0] / SCALE_Y), 0);
+		int maxY = Math.min(MHelper.floor(range[1] / SCALE_Y) + 1, 31);
+		
+		for (int y = minY; y <= maxY; y++) {
 			double py = (double) y * SCALE_Y;
 			float dist = largeIslands.getDensity(px, py, pz);
-			dist = dist > 1 ? dist : MHelper.max(dist, mediumIslands.getDensity(px, py, pz));
-			dist = dist > 1 ? dist : MHelper.max(dist, smallIslands.getDensity(px, py, pz));
+			dist = dist > 1 ? dist : mediumIslands.getDensity(px, py, pz, dist);
+			dist = dist > 1 ? dist : smallIslands.getDensity(px, py, pz, dist);
 			if (dist > -0.5F) {
 				dist += noise1.eval(px * 0.01, py * 0.01, pz * 0.01) * 0.04;
 				dist += noise2.eval(px * 0.05, py * 0.05, pz * 0.05) * 0.02;
 				dist += noise1.eval(px * 0.1, py * 0.1, pz * 0.1) * 0.01;
 			}
 			if (dist > 0) {
-				LOCKER.unlock();
 				return true;
 			}
 		}
 		
-		LOCKER.unlock();
 		return false;
 	}
+	
+	private static final class SamplerState {
+		final Long2ObjectLinkedOpenHashMap<double[]> columns = new Long2ObjectLinkedOpenHashMap<double[]>(COLUMN_CACHE_SIZE);
+		final double[] heightRange = new double[2];
+		final IslandLayer[] layers;
+		final IslandLayer largeIslands;
+		final IslandLayer mediumIslands;
+		final IslandLayer smallIslands;
+		
+		SamplerState(IslandLayer[] layers) {
+			this.layers = layers;
+			largeIslands = new IslandLayer(layers[0]);
+			mediumIslands = new IslandLayer(layers[1]);
+			smallIslands = new IslandLayer(layers[2]);
+		}
+	}
 }
@@ -10,6 +10,8 @@ import net.minecraft.world.gen.feature.ConfiguredStructureFeature;
 import net.minecraft.world.gen.feature.DefaultFeatureConfig;
 import net.minecraft.world.gen.feature.StructureFeature;
 import ru.betterend.BetterEnd;
+import ru.betterend.config.Configs;
+import ru.betterend.world.structures.features.SDFStructureFeature;
 
 public class EndStructureFeature {
 	private static final Random RANDOM = new Random(354);
@@ -26,6 +28,10 @@ public class EndStructureFeature {
 		.defaultConfig(spacing, separation, RANDOM.nextInt(8192))
 		.register();
 
+		if (structure instanceof SDFStructureFeature) {
+			((SDFStructureFeature) structure).setLazyPieces(Configs.GENERATOR_CONFIG.getBoolean("lazyVoxelPieces", name, false));
+		}
+
 		this.featureConfigured = this.structure.configure(DefaultFeatureConfig.DEFAULT);
 		
 		BuiltinRegistries.add(BuiltinRegistries.CONFIGURED_STRUCTURE_FEATURE, id, this.featureConfigured);
@@ -0,0 +1,125 @@
+package ru.betterend.world.structures;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.minecraft.util.math.BlockBox;
+import net.minecraft.util.math.MathHelper;
+
+/**
+ * Column heights of a terrain structure piece in a dense grid over piece box (expanded by kernel radius).
+ * Heights are computed once on first access and shared by all chunks of the piece, height clamp is a
+ * weighted average of heights with precomputed cone kernel. Grid is filled concurrently by chunks of the
+ * piece, columns can be computed twice but values are plain ints and are never torn. Grid is released when
+ * all chunks of the piece box are generated, so finished structure starts don't keep it in memory.
+ */
+public class Heightfield {
+	private static final int UNKNOWN = Integer.MIN_VALUE;
+	private final int minX;
+	private final int minZ;
+	private final int sizeX;
+	private final int sizeZ;
+	private final int radius;
+	private final int[] kernelX;
+	private final int[] kernelZ;
+	private final float[] kernelWeight;
+	private final float kernelSum;
+	private final AtomicInteger pendingChunks;
+	private volatile int[] heights;
+	
+	public Heightfield(BlockBox box, int radius) {
+		this.minX = box.minX - radius;
+		this.minZ = box.minZ - radius;
+		this.sizeX = box.maxX - box.minX + 1 + (radius << 1);
+		this.sizeZ = box.maxZ - box.minZ + 1 + (radius << 1);
+		this.radius = radius;
+		
+		int chunksX = (box.maxX >> 4) - (box.minX >> 4) + 1;
+		int chunksZ = (box.maxZ >> 4) - (box.minZ >> 4) + 1;
+		this.pendingChunks = new AtomicInteger(chunksX * chunksZ);
+		
+		int side = (radius << 1) | 1;
+		int[] kernelX = new int[side * side];
+		int[] kernelZ = new int[side * side];
+		float[] kernelWeight = new float[side * side];
+		float sum = 0;
+		int count = 0;
+		for (int x = -radius; x <= radius; x++) {
+			int x2 = x * x;
+			for (int z = -radius; z <= radius; z++) {
+				int z2 = z * z;
+				float mult = 1 - (float) Math.sqrt(x2 + z2) / radius;
+				if (mult > 0) {
+					sum += mult;
+					kernelX[count] = x;
+					kernelZ[count] = z;
+					kernelWeight[count] = mult;
+					count++;
+				}
+			}
+		}
+		this.kernelX = Arrays.copyOf(kernelX, count);
+		this.kernelZ = Arrays.copyOf(kernelZ, count);
+		this.kernelWeight = Arrays.copyOf(kernelWeight, count);
+		this.kernelSum = sum;
+	}
+	
+	public int getHeight(int x, int z, ColumnHeight function) {
+		int dx = x - minX;
+		int dz = z - minZ;
+		if (dx < 0 || dz < 0 || dx >= sizeX || dz >= sizeZ) {
+			return function.getHeight(x, z);
+		}
+		
+		int[] heights = getHeights();
+		int index = dz * sizeX + dx;
+		int h = heights[index];
+		if (h == UNKNOWN) {
+			h = function.getHeight(x, z);
+			heights[index] = h;
+		}
+		return h;
+	}
+	
+	/**
+	 * Weighted average of heights in kernel radius around the column, divided by radius and clamped to 0-1.
+	 * Kernel weights decrease linearly from the column, taps are added in the same order as direct loop.
+	 */
+	public float getHeightClamp(int x, int z, ColumnHeight function) {
+		float height = 0;
+		for (int i = 0; i < kernelWeight.length; i++) {
+			height += getHeight(x + kernelX[i], z + kernelZ[i], function) * kernelWeight[i];
+		}
+		height /= kernelSum;
+		return MathHelper.clamp(height / radius, 0, 1);
+	}
+	
+	/**
+	 * Should be called when piece finished generation in one of its chunks.
+	 */
+	public void onChunkGenerated() {
+		if (pendingChunks.decrementAndGet() <= 0) {
+			heights = null;
+		}
+	}
+	
+	private int[] getHeights() {
+		int[] heights = this.heights;
+		if (heights == null) {
+			synchronized (this) {
+				heights = this.heights;
+				if (heights == null) {
+					heights = new int[sizeX * sizeZ];
+					Arrays.fill(heights, UNKNOWN);
+					this.heights = heights;
+				}
+			}
+		}
+		return heights;
+	}
+	
+	@FunctionalInterface
+	public interface ColumnHeight {
+		int getHeight(int x, int z);
+	}
+}
@@ -1,23 +1,29 @@
 package ru.betterend.world.structures;
 
-import java.util.Map;
+import java.util.List;
 
-import com.google.common.collect.Maps;
+import com.google.common.collect.Lists;
 
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import net.minecraft.block.Block;
 import net.minecraft.block.BlockState;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.nbt.ListTag;
 import net.minecraft.nbt.NbtHelper;
+import net.minecraft.util.collection.PackedIntegerArray;
 import net.minecraft.util.math.BlockBox;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.ChunkPos;
 import net.minecraft.world.StructureWorldAccess;
 import net.minecraft.world.chunk.Chunk;
+import ru.betterend.util.ChunkWriter;
 
 public class StructureWorld {
-	private Map<ChunkPos, Part> parts = Maps.newHashMap();
-	private ChunkPos lastPos;
+	private Long2ObjectMap<Part> parts = new Long2ObjectOpenHashMap<Part>();
+	private long lastPos = Long.MAX_VALUE;
 	private Part lastPart;
 	private int minX = Integer.MAX_VALUE;
 	private int minY = Integer.MAX_VALUE;
@@ -42,14 +48,19 @@ public class StructureWorld {
 			Part part = new Part(compound);
 			int x = compound.getInt("x");
 			int z = compound.getInt("z");
-			parts.put(new ChunkPos(x, z), part);
+			parts.put(ChunkPos.toLong(x, z), part);
 		});
 	}
 	
 	public void setBlock(BlockPos pos, BlockState state) {
-		ChunkPos cPos = new ChunkPos(pos);
+		int cx = pos.getX() >> 4;
+		int cz = pos.getZ() >> 4;
+		long cPos = ChunkPos.toLong(cx, cz);
 		
-		if (cPos.equals(lastPos)) {
+		if (pos.getY() < minY) minY = pos.getY();
+		if (pos.getY() > maxY) maxY = pos.getY();
+		
+		if (cPos == lastPos) {
 			lastPart.addBlock(pos, state);
 			return;
 		}
@@ -59,13 +70,11 @@ public class StructureWorld {
 			part = new Part();
 			parts.put(cPos, part);
 			
-			if (cPos.x < minX) minX = cPos.x;
-			if (cPos.x > maxX) maxX = cPos.x;
-			if (cPos.z < minZ) minZ = cPos.z;
-			if (cPos.z > maxZ) maxZ = cPos.z;
+			if (cx < minX) minX = cx;
+			if (cx > maxX) maxX = cx;
+			if (cz < minZ) minZ = cz;
+			if (cz > maxZ) maxZ = cz;
 		}
-		if (pos.getY() < minY) minY = pos.getY();
-		if (pos.getY() > maxY) maxY = pos.getY();
 		part.addBlock(pos, state);
 		
 		lastPos = cPos;
@@ -73,7 +82,7 @@ public class StructureWorld {
 	}
 	
 	public boolean placeChunk(StructureWorldAccess world, ChunkPos chunkPos) {
-		Part part = parts.get(chunkPos);
+		Part part = parts.get(chunkPos.toLong());
 		if (part != null) {
 			Chunk chunk = world.getChunk(chunkPos.x, chunkPos.z);
 			part.placeChunk(chunk);
@@ -92,8 +101,9 @@ public class StructureWorld {
 		tag.putInt("maxZ", maxZ);
 		ListTag map = new ListTag();
 		tag.put("parts", map);
-		parts.forEach((pos, part) -> {
-			map.add(part.toNBT(pos.x, pos.z));
+		parts.long2ObjectEntrySet().forEach((entry) -> {
+			ChunkPos pos = new ChunkPos(entry.getLongKey());
+			map.add(entry.getValue().toNBT(pos.x, pos.z));
 		});
 		return tag;
 	}
@@ -105,12 +115,53 @@ public class StructureWorld {
 		return new BlockBox(minX << 4, minY, minZ << 4, (maxX << 4) | 15, maxY, (maxZ << 4) | 15);
 	}
 	
+	/**
+	 * Count of stored blocks, used for debug output.
+	 */
+	public int getBlockCount() {
+		int count = 0;
+		for (Part part: parts.values()) {
+			count += part.getBlockCount();
+		}
+		return count;
+	}
+	
+	/**
+	 * Approximate heap size of stored blocks in bytes, used for debug output.
+	 */
+	public long getMemorySize() {
+		long size = 0;
+		for (Part part: parts.values()) {
+			size += part.getMemorySize();
+		}
+		return size;
+	}
+	
 	private static final class Part {
-		Map<BlockPos, BlockState> blocks = Maps.newHashMap();
+		private final Section[] sections = new Section[16];
 		
 		public Part() {}
 		
 		public Part(CompoundTag tag) {
+			if (tag.contains("sections")) {
+				ListTag list = tag.getList("sections", 10);
+				list.forEach((element) -> {
+					CompoundTag compound = (CompoundTag) element;
+					int y = compound.getByte("y");
+					if (y >= 0 && y < sections.length) {
+						sections[y] = new Section(compound);
+					}
+				});
+			}
+			else {
+				readLegacy(tag);
+			}
+		}
+		
+		/**
+		 * Reads old format with one compound per block.
+		 */
+		private void readLegacy(CompoundTag tag) {
 			ListTag map = tag.getList("blocks", 10);
 			ListTag map2 = tag.getList("states", 10);
 			BlockState[] states = new BlockState[map2.size()];
@@ -123,47 +174,158 @@ public class StructureWorld {
 				BlockPos pos = NbtHelper.toBlockPos(block.getCompound("pos"));
 				int stateID = block.getInt("state");
 				BlockState state = stateID < states.length ? states[stateID] : Block.getStateFromRawId(stateID);
-				blocks.put(pos, state);
+				addBlock(pos, state);
 			});
 		}
 		
 		void addBlock(BlockPos pos, BlockState state) {
-			BlockPos inner = new BlockPos(pos.getX() & 15, pos.getY(), pos.getZ() & 15);
-			blocks.put(inner, state);
+			int y = pos.getY();
+			if (y < 0 || y > 255) {
+				return;
+			}
+			Section section = sections[y >> 4];
+			if (section == null) {
+				section = new Section();
+				sections[y >> 4] = section;
+			}
+			section.set(Section.getIndex(pos.getX() & 15, y & 15, pos.getZ() & 15), state);
 		}
 		
 		void placeChunk(Chunk chunk) {
-			blocks.forEach((pos, state) -> {
-				chunk.setBlockState(pos, state, false);
-			});
+			ChunkWriter writer = new ChunkWriter(chunk);
+			for (int i = 0; i < sections.length; i++) {
+				Section section = sections[i];
+				if (section != null) {
+					section.place(writer, i << 4);
+				}
+			}
+			writer.finish();
+		}
+		
+		int getBlockCount() {
+			int count = 0;
+			for (Section section: sections) {
+				if (section != null) {
+					count += section.count;
+				}
+			}
+			return count;
+		}
+		
+		long getMemorySize() {
+			long size = 16 + sections.length * 4;
+			for (Section section: sections) {
+				if (section != null) {
+					size += section.getMemorySize();
+				}
+			}
+			return size;
 		}
 		
 		CompoundTag toNBT(int x, int z) {
 			CompoundTag tag = new CompoundTag();
 			tag.putInt("x", x);
 			tag.putInt("z", z);
-			ListTag map = new ListTag();
-			tag.put("blocks", map);
-			ListTag stateMap = new ListTag();
-			tag.put("states", stateMap);
-			
-			int[] id = new int[1];
-			Map<BlockState, Integer> states = Maps.newHashMap();
-			
-			blocks.forEach((pos, state) -> {
-				int stateID = states.getOrDefault(states, -1);
-				if (stateID < 0) {
-					stateID = id[0] ++;
-					states.put(state, stateID);
-					stateMap.add(NbtHelper.fromBlockState(state));
+			ListTag list = new ListTag();
+			tag.put("sections", list);
+			for (int i = 0; i < sections.length; i++) {
+				Section section = sections[i];
+				if (section != null && section.count > 0) {
+					CompoundTag compound = section.toNBT();
+					compound.putByte("y", (byte) i);
+					list.add(compound);
 				}
-				
-				CompoundTag block = new CompoundTag();
-				block.put("pos", NbtHelper.fromBlockPos(pos));
-				block.putInt("state", stateID);
-				map.add(block);
-			});
-			
+			}
+			return tag;
+		}
+	}
+	
+	/**
+	 * Paletted 16x16x16 block storage. Palette index 0 is reserved for positions without block,
+	 * indices are packed into long array which grows in bits with palette.
+	 */
+	private static final class Section {
+		private static final int SIZE = 4096;
+		private final List<BlockState> palette = Lists.newArrayList();
+		private final Object2IntMap<BlockState> indices = new Object2IntOpenHashMap<BlockState>();
+		private PackedIntegerArray data;
+		private int bits;
+		private int count;
+		
+		Section() {
+			palette.add(null);
+			bits = 1;
+			data = new PackedIntegerArray(bits, SIZE);
+		}
+		
+		Section(CompoundTag tag) {
+			palette.add(null);
+			ListTag states = tag.getList("palette", 10);
+			for (int i = 0; i < states.size(); i++) {
+				BlockState state = NbtHelper.toBlockState(states.getCompound(i));
+				indices.put(state, palette.size());
+				palette.add(state);
+			}
+			bits = tag.getInt("bits");
+			data = new PackedIntegerArray(bits, SIZE, tag.getLongArray("data"));
+			for (int i = 0; i < SIZE; i++) {
+				if (data.get(i) != 0) {
+					count++;
+				}
+			}
+		}
+		
+		static int getIndex(int x, int y, int z) {
+			return (y << 8) | (z << 4) | x;
+		}
+		
+		void set(int index, BlockState state) {
+			int value = indices.getInt(state);
+			if (value == 0) {
+				value = palette.size();
+				palette.add(state);
+				indices.put(state, value);
+				if (value >= (1 << bits)) {
+					resize(bits + 1);
+				}
+			}
+			if (data.get(index) == 0) {
+				count++;
+			}
+			data.set(index, value);
+		}
+		
+		private void resize(int bits) {
+			PackedIntegerArray resized = new PackedIntegerArray(bits, SIZE);
+			for (int i = 0; i < SIZE; i++) {
+				resized.set(i, data.get(i));
+			}
+			this.bits = bits;
+			this.data = resized;
+		}
+		
+		void place(ChunkWriter writer, int startY) {
+			for (int i = 0; i < SIZE; i++) {
+				int value = data.get(i);
+				if (value != 0) {
+					writer.setBlockState(i & 15, startY | (i >> 8), (i >> 4) & 15, palette.get(value));
+				}
+			}
+		}
+		
+		long getMemorySize() {
+			return 64 + palette.size() * 24 + (long) data.getStorage().length * 8;
+		}
+		
+		CompoundTag toNBT() {
+			CompoundTag tag = new CompoundTag();
+			ListTag states = new ListTag();
+			for (int i = 1; i < palette.size(); i++) {
+				states.add(NbtHelper.fromBlockState(palette.get(i)));
+			}
+			tag.put("palette", states);
+			tag.putInt("bits", bits);
+			tag.putLongArray("data", data.getStorage());
 			return tag;
 		}
 	}
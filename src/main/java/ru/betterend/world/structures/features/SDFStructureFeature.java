@@ -6,6 +6,7 @@ import net.minecraft.structure.StructureManager;
 import net.minecraft.structure.StructureStart;
 import net.minecraft.util.math.BlockBox;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Box;
 import net.minecraft.util.registry.DynamicRegistryManager;
 import net.minecraft.world.Heightmap.Type;
 import net.minecraft.world.biome.Biome;
@@ -17,9 +18,46 @@ import ru.betterend.util.sdf.SDF;
 import ru.betterend.world.structures.piece.VoxelPiece;
 
 public abstract class SDFStructureFeature extends StructureFeatureBase {
+	private boolean lazyPieces;
 	
 	protected abstract SDF getSDF(BlockPos pos, Random random);
 	
+	/**
+	 * Makes SDF for lazy pieces, same position and seed always give the same SDF.
+	 */
+	public SDF makeSDF(BlockPos pos, long seed) {
+		return getSDF(pos, new Random(seed));
+	}
+	
+	/**
+	 * Lazy pieces store only origin and seed and evaluate SDF for each chunk instead of storing all blocks.
+	 * Output differs from eager pieces:
+	 * <ul>
+	 * <li>chunks are filled with area fill in SDF bounding box, so parts not connected to origin are placed too;</li>
+	 * <li>each chunk makes SDF with new Random(seed), so random values in SDF and post-processing differ;</li>
+	 * <li>post-processing sees only {@link VoxelPiece#CHUNK_PADDING} blocks around the chunk, processors that
+	 * look further can give different blocks near chunk borders.</li>
+	 * </ul>
+	 * SDFs without finite bounding box (coordinate modifiers) can't be sliced and always make eager pieces.
+	 */
+	public SDFStructureFeature setLazyPieces(boolean lazyPieces) {
+		this.lazyPieces = lazyPieces;
+		return this;
+	}
+	
+	protected static VoxelPiece makePiece(SDFStructureFeature feature, BlockPos start, Random random) {
+		if (feature.lazyPieces) {
+			long seed = random.nextLong();
+			SDF sdf = feature.makeSDF(start, seed);
+			Box box = sdf.getBoundingBox();
+			if (VoxelPiece.isFinite(box)) {
+				return new VoxelPiece(feature, start, seed, box, random.nextInt());
+			}
+			return new VoxelPiece((world) -> { sdf.fillRecursive(world, start); }, random.nextInt());
+		}
+		return new VoxelPiece((world) -> { feature.getSDF(start, random).fillRecursive(world, start); }, random.nextInt());
+	}
+	
 	@Override
 	public StructureFeature.StructureStartFactory<DefaultFeatureConfig> getStructureStartFactory() {
 		return SDFStructureStart::new;
@@ -37,7 +75,7 @@ public abstract class SDFStructureFeature extends StructureFeatureBase {
 			int y = chunkGenerator.getHeight(x, z, Type.WORLD_SURFACE_WG);
 			if (y > 5) {
 				BlockPos start = new BlockPos(x, y, z);
-				VoxelPiece piece = new VoxelPiece((world) -> { ((SDFStructureFeature) this.getFeature()).getSDF(start, this.random).fillRecursive(world, start); }, random.nextInt());
+				VoxelPiece piece = makePiece((SDFStructureFeature) this.getFeature(), start, this.random);
 				this.children.add(piece);
 			}
 			this.setBoundingBoxFromChildren();
@@ -111,7 +111,7 @@ public class StructureGiantIceStar extends SDFStructureFeature {
 			int x = (chunkX << 4) | MHelper.randRange(4, 12, random);
 			int z = (chunkZ << 4) | MHelper.randRange(4, 12, random);
 			BlockPos start = new BlockPos(x, MHelper.randRange(32, 128, random), z);
-			VoxelPiece piece = new VoxelPiece((world) -> { ((SDFStructureFeature) this.getFeature()).getSDF(start, this.random).fillRecursive(world, start); }, random.nextInt());
+			VoxelPiece piece = makePiece((SDFStructureFeature) this.getFeature(), start, this.random);
 			this.children.add(piece);
 			this.setBoundingBoxFromChildren();
 		}
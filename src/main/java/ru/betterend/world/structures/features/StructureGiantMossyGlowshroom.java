@@ -55,7 +55,7 @@ public class StructureGiantMossyGlowshroom extends SDFStructureFeature {
 			float dist = MHelper.length(pos.getX(), pos.getZ());
 			float y = pos.getY() + (float) noise.eval(pos.getX() * 0.1 + center.getX(), pos.getZ() * 0.1 + center.getZ()) * dist * 0.3F - dist * 0.15F;
 			pos.set(pos.getX(), y, pos.getZ());
-		}).setSource(cones);
+		}).setDeterministic(true).setSource(cones);
 		
 		SDFTranslate HEAD_POS = (SDFTranslate) new SDFTranslate().setSource(new SDFTranslate().setTranslate(0, 2.5F, 0).setSource(cones));
 		
@@ -1,5 +1,6 @@
 package ru.betterend.world.structures.piece;
 
+import java.util.Arrays;
 import java.util.Random;
 
 import net.minecraft.block.Blocks;
@@ -10,14 +11,17 @@ import net.minecraft.util.math.BlockBox;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.BlockPos.Mutable;
 import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.MathHelper;
 import net.minecraft.world.StructureWorldAccess;
 import net.minecraft.world.gen.StructureAccessor;
 import net.minecraft.world.gen.chunk.ChunkGenerator;
 import ru.betterend.noise.OpenSimplexNoise;
 import ru.betterend.registry.EndStructures;
 import ru.betterend.registry.EndTags;
-import ru.betterend.util.BlocksHelper;
+import ru.betterend.util.ChunkWriter;
 import ru.betterend.util.MHelper;
+import ru.betterend.world.generator.GenerationProfiler;
+import ru.betterend.world.generator.GeneratorOptions;
 
 public class CavePiece extends BasePiece {
 	private OpenSimplexNoise noise;
@@ -39,6 +43,7 @@ public class CavePiece extends BasePiece {
 	
 	@Override
 	public boolean generate(StructureWorldAccess world, StructureAccessor arg, ChunkGenerator chunkGenerator, Random random, BlockBox blockBox, ChunkPos chunkPos, BlockPos blockPos) {
+		GenerationProfiler.Scope scope = GenerationProfiler.begin(getClass());
 		int x1 = MHelper.max(this.boundingBox.minX, blockBox.minX);
 		int z1 = MHelper.max(this.boundingBox.minZ, blockBox.minZ);
 		int x2 = MHelper.min(this.boundingBox.maxX, blockBox.maxX);
@@ -48,7 +53,12 @@ public class CavePiece extends BasePiece {
 		
 		double hr = radius * 0.75;
 		double nr = radius * 0.25;
+		// Noise is in -1..1 range, so blocks further than both radius bounds (r and r - 4.5) are never changed
+		double maxR = Math.max(hr + nr, Math.max(Math.abs(hr + nr - 4.5), Math.abs(hr - nr - 4.5)));
+		double maxR2 = maxR * maxR;
 		Mutable pos = new Mutable();
+		ChunkWriter writer = new ChunkWriter(world.getChunk(chunkPos.x, chunkPos.z));
+		CoarseNoise coarse = GeneratorOptions.useCoarseCaveNoise() ? new CoarseNoise(noise, x1, y1, z1, x2, y2, z2) : null;
 		for (int x = x1; x <= x2; x++) {
 			int xsq = x - center.getX();
 			xsq *= xsq;
@@ -56,29 +66,44 @@ public class CavePiece extends BasePiece {
 			for (int z = z1; z <= z2; z++) {
 				int zsq = z - center.getZ();
 				zsq *= zsq;
+				double remaining = maxR2 - xsq - zsq;
+				if (remaining <= 0) {
+					continue;
+				}
 				pos.setZ(z);
-				for (int y = y1; y <= y2; y++) {
+				
+				// |(int) (dy * 1.6)| < sqrt(remaining) requires |dy| < (sqrt(remaining) + 1) / 1.6
+				int span = MHelper.floor((Math.sqrt(remaining) + 1) / 1.6) + 1;
+				int minY = Math.max(y1, center.getY() - span);
+				int maxY = Math.min(y2, center.getY() + span);
+				for (int y = minY; y <= maxY; y++) {
 					int ysq = y - center.getY();
 					ysq *= 1.6;
 					ysq *= ysq;
+					double dist = xsq + ysq + zsq;
+					if (dist >= maxR2) {
+						continue;
+					}
 					pos.setY(y);
-					double r = noise.eval(x * 0.1, y * 0.1, z * 0.1) * nr + hr;
+					double value = coarse == null ? noise.eval(x * 0.1, y * 0.1, z * 0.1) : coarse.eval(x, y, z);
+					double r = value * nr + hr;
 					double r2 = r - 4.5;
-					double dist = xsq + ysq + zsq;
 					if (dist < r2 * r2) {
-						if (world.getBlockState(pos).isIn(EndTags.END_GROUND)) {
-							BlocksHelper.setWithoutUpdate(world, pos, AIR);
+						if (writer.getBlockState(pos).isIn(EndTags.END_GROUND)) {
+							writer.setBlockState(pos, AIR);
 						}
 					}
 					else if (dist < r * r) {
-						if (world.getBlockState(pos).getMaterial().isReplaceable()) {
-							BlocksHelper.setWithoutUpdate(world, pos, Blocks.END_STONE);
+						if (writer.getBlockState(pos).getMaterial().isReplaceable()) {
+							writer.setBlockState(pos, Blocks.END_STONE.getDefaultState());
 						}
 					}
 				}
 			}
 		}
+		writer.finish();
 		
+		GenerationProfiler.end(scope);
 		return true;
 	}
 
@@ -104,4 +129,56 @@ public class CavePiece extends BasePiece {
 		int maxZ = MHelper.floor(center.getZ() + radius + 1);
 		this.boundingBox = new BlockBox(minX, minY, minZ, maxX, maxY, maxZ);
 	}
+	
+	/**
+	 * Cave noise sampled on 4x4x4 lattice and interpolated trilinearly, lattice nodes are computed on first use.
+	 */
+	private static final class CoarseNoise {
+		private final OpenSimplexNoise noise;
+		private final double[] values;
+		private final int minX;
+		private final int minY;
+		private final int minZ;
+		private final int sizeX;
+		private final int sizeY;
+		
+		CoarseNoise(OpenSimplexNoise noise, int x1, int y1, int z1, int x2, int y2, int z2) {
+			this.noise = noise;
+			this.minX = x1 >> 2;
+			this.minY = y1 >> 2;
+			this.minZ = z1 >> 2;
+			this.sizeX = (x2 >> 2) - minX + 2;
+			this.sizeY = (y2 >> 2) - minY + 2;
+			int sizeZ = (z2 >> 2) - minZ + 2;
+			this.values = new double[sizeX * sizeY * sizeZ];
+			Arrays.fill(values, Double.NaN);
+		}
+		
+		double eval(int x, int y, int z) {
+			int cx = (x >> 2) - minX;
+			int cy = (y >> 2) - minY;
+			int cz = (z >> 2) - minZ;
+			double dx = (x & 3) * 0.25;
+			double dy = (y & 3) * 0.25;
+			double dz = (z & 3) * 0.25;
+			double a = MathHelper.lerp(dx, getNode(cx, cy, cz), getNode(cx + 1, cy, cz));
+			double b = MathHelper.lerp(dx, getNode(cx, cy + 1, cz), getNode(cx + 1, cy + 1, cz));
+			double c = MathHelper.lerp(dx, getNode(cx, cy, cz + 1), getNode(cx + 1, cy, cz + 1));
+			double d = MathHelper.lerp(dx, getNode(cx, cy + 1, cz + 1), getNode(cx + 1, cy + 1, cz + 1));
+			return MathHelper.lerp(dz, MathHelper.lerp(dy, a, b), MathHelper.lerp(dy, c, d));
+		}
+		
+		private double getNode(int cx, int cy, int cz) {
+			int index = (cz * sizeY + cy) * sizeX + cx;
+			double value = values[index];
+			if (Double.isNaN(value)) {
+				int x = (cx + minX) << 2;
+				int y = (cy + minY) << 2;
+				int z = (cz + minZ) << 2;
+				value = noise.eval(x * 0.1, y * 0.1, z * 0.1);
+				values[index] = value;
+			}
+			return value;
+		}
+	}
 }
@@ -1,10 +1,7 @@
 package ru.betterend.world.structures.piece;
 
-import java.util.Map;
 import java.util.Random;
 
-import com.google.common.collect.Maps;
-
 import net.minecraft.block.BlockState;
 import net.minecraft.block.Blocks;
 import net.minecraft.nbt.CompoundTag;
@@ -28,11 +25,14 @@ import ru.betterend.registry.EndBiomes;
 import ru.betterend.registry.EndBlocks;
 import ru.betterend.registry.EndStructures;
 import ru.betterend.registry.EndTags;
+import ru.betterend.util.ChunkWriter;
 import ru.betterend.util.MHelper;
+import ru.betterend.world.generator.GenerationProfiler;
+import ru.betterend.world.structures.Heightfield;
+import ru.betterend.world.structures.Heightfield.ColumnHeight;
 
 public class LakePiece extends BasePiece {
 	private static final BlockState WATER = Blocks.WATER.getDefaultState();
-	private Map<Integer, Integer> heightmap = Maps.newHashMap();
 	private OpenSimplexNoise noise1;
 	private OpenSimplexNoise noise2;
 	private BlockPos center;
@@ -42,6 +42,7 @@ public class LakePiece extends BasePiece {
 	private Identifier biomeID;
 	private int seed1;
 	private int seed2;
+	private Heightfield heightfield;
 	
 	public LakePiece(BlockPos center, float radius, float depth, Random random, Biome biome) {
 		super(EndStructures.LAKE_PIECE, random.nextInt());
@@ -87,10 +88,13 @@ public class LakePiece extends BasePiece {
 
 	@Override
 	public boolean generate(StructureWorldAccess world, StructureAccessor arg, ChunkGenerator chunkGenerator, Random random, BlockBox blockBox, ChunkPos chunkPos, BlockPos blockPos) {
+		GenerationProfiler.Scope scope = GenerationProfiler.begin(getClass());
 		int sx = chunkPos.getStartX();
 		int sz = chunkPos.getStartZ();
 		Mutable pos = new Mutable();
 		Chunk chunk = world.getChunk(chunkPos.x, chunkPos.z);
+		ChunkWriter writer = new ChunkWriter(chunk);
+		ColumnHeight heights = (x, z) -> getHeight(world, x, z);
 		Heightmap map = chunk.getHeightmap(Type.WORLD_SURFACE_WG);
 		for (int x = 0; x < 16; x++) {
 			int px = x + sx;
@@ -107,7 +111,7 @@ public class LakePiece extends BasePiece {
 					dist = 1 - dist / r2;
 					int maxY = map.get(x, z);
 					if (maxY > 55) {
-						float minY = dist * depth * getHeightClamp(world, 8, px, pz);
+						float minY = dist * depth * heightfield.getHeightClamp(px, pz, heights);
 						if (minY > 0) {
 							minY *= (float) noise1.eval(px * 0.05, pz * 0.05) * 0.3F + 0.7F;
 							minY *= (float) noise1.eval(px * 0.1, pz * 0.1) * 0.1F + 0.8F;
@@ -124,7 +128,7 @@ public class LakePiece extends BasePiece {
 								pos.setY(y);
 								BlockState state = chunk.getBlockState(pos);
 								if (state.getMaterial().isReplaceable() || state.isIn(EndTags.GEN_TERRAIN)) {
-									chunk.setBlockState(pos, y > 56 ? AIR : WATER, false);
+									writer.setBlockState(pos, y > 56 ? AIR : WATER);
 								}
 								else {
 									break;
@@ -137,10 +141,10 @@ public class LakePiece extends BasePiece {
 								BlockState state = chunk.getBlockState(pos);
 								if (state.getMaterial().isReplaceable() || state.isIn(EndTags.GEN_TERRAIN)) {
 									if (pos.getY() > 56) {
-										chunk.setBlockState(pos, AIR, false);
+										writer.setBlockState(pos, AIR);
 										if (pos.getY() == last) {
 											state = world.getBiome(pos.add(sx, 0, sz)).getGenerationSettings().getSurfaceConfig().getTopMaterial();
-											chunk.setBlockState(pos.down(), state, false);
+											writer.setBlockState(pos.down(), state);
 										}
 									}
 									else if (pos.getY() == 56) {
@@ -150,24 +154,24 @@ public class LakePiece extends BasePiece {
 										else {
 											state = world.getBiome(pos.add(sx, 0, sz)).getGenerationSettings().getSurfaceConfig().getTopMaterial();
 										}
-										chunk.setBlockState(pos, state, false);
+										writer.setBlockState(pos, state);
 										
 										state = world.getBiome(pos.add(sx, 0, sz)).getGenerationSettings().getSurfaceConfig().getUnderMaterial();
 										int count = (int) (noise1.eval((pos.getX() + sx) * 0.1, (pos.getZ() + sz) * 0.1) + 2);//MHelper.randRange(1, 2, random);
 										for (int n = 0; n < count; n++) {
 											pos.setY(pos.getY() - 1);
-											chunk.setBlockState(pos, state, false);
+											writer.setBlockState(pos, state);
 										}
 										break;
 									}
 									else {
-										chunk.setBlockState(pos, EndBlocks.ENDSTONE_DUST.getDefaultState(), false);
+										writer.setBlockState(pos, EndBlocks.ENDSTONE_DUST.getDefaultState());
 										
 										state = world.getBiome(pos.add(sx, 0, sz)).getGenerationSettings().getSurfaceConfig().getUnderMaterial();
 										int count = (int) (noise1.eval((pos.getX() + sx) * 0.1, (pos.getZ() + sz) * 0.1) + 2);//int count = MHelper.randRange(1, 2, random);
 										for (int n = 0; n < count; n++) {
 											pos.setY(pos.getY() - 1);
-											chunk.setBlockState(pos, state, false);
+											writer.setBlockState(pos, state);
 										}
 										break;
 									}
@@ -178,67 +182,38 @@ public class LakePiece extends BasePiece {
 				}
 			}
 		}
+		writer.finish();
 		
 		map = chunk.getHeightmap(Type.WORLD_SURFACE);
 		
+		heightfield.onChunkGenerated();
+		GenerationProfiler.end(scope);
 		return true;
 	}
 	
-	private int getHeight(StructureWorldAccess world, BlockPos pos) {
-		int p = ((pos.getX() & 2047) << 11) | (pos.getZ() & 2047);
-		int h = heightmap.getOrDefault(p, Integer.MIN_VALUE);
-		if (h > Integer.MIN_VALUE) {
-			return h;
-		}
-		
-		if (!EndBiomes.getBiomeID(world.getBiome(pos)).equals(biomeID)) {
-			heightmap.put(p, -20);
+	private int getHeight(StructureWorldAccess world, int x, int z) {
+		if (!EndBiomes.getBiomeID(world.getBiome(new BlockPos(x, 0, z))).equals(biomeID)) {
 			return -20;
 		}
-		h = world.getTopY(Type.WORLD_SURFACE_WG, pos.getX(), pos.getZ());
+		int h = world.getTopY(Type.WORLD_SURFACE_WG, x, z);
 		if (h < 57 || h > 64) {
-			heightmap.put(p, -20);
 			return -20;
 		}
-		h = MHelper.floor(noise2.eval(pos.getX() * 0.01, pos.getZ() * 0.01) * noise2.eval(pos.getX() * 0.002, pos.getZ() * 0.002) * 8 + 8);
+		h = MHelper.floor(noise2.eval(x * 0.01, z * 0.01) * noise2.eval(x * 0.002, z * 0.002) * 8 + 8);
 		
 		if (h < 0) {
-			heightmap.put(p, 0);
 			return 0;
 		}
 		
-		heightmap.put(p, h);
-		
 		return h;
 	}
 	
-	private float getHeightClamp(StructureWorldAccess world, int radius, int posX, int posZ) {
-		Mutable mut = new Mutable();
-		int r2 = radius * radius;
-		float height = 0;
-		float max = 0;
-		for (int x = -radius; x <= radius; x++) {
-			mut.setX(posX + x);
-			int x2 = x * x;
-			for (int z = -radius; z <= radius; z++) {
-				mut.setZ(posZ + z);
-				int z2 = z * z;
-				if (x2 + z2 < r2) {
-					float mult = 1 - (float) Math.sqrt(x2 + z2) / radius;
-					max += mult;
-					height += getHeight(world, mut) * mult;
-				}
-			}
-		}
-		height /= max;
-		return MathHelper.clamp(height / radius, 0, 1);
-	}
-	
 	private void makeBoundingBox() {
 		int minX = MHelper.floor(center.getX() - radius);
 		int minZ = MHelper.floor(center.getZ() - radius);
 		int maxX = MHelper.floor(center.getX() + radius + 1);
 		int maxZ = MHelper.floor(center.getZ() + radius + 1);
 		this.boundingBox = new BlockBox(minX, minZ, maxX, maxZ);
+		this.heightfield = new Heightfield(boundingBox, 8);
 	}
 }
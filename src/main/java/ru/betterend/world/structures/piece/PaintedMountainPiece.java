@@ -1,10 +1,7 @@
 package ru.betterend.world.structures.piece;
 
-import java.util.Map;
 import java.util.Random;
 
-import com.google.common.collect.Maps;
-
 import net.minecraft.block.BlockState;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.nbt.ListTag;
@@ -15,7 +12,6 @@ import net.minecraft.util.math.BlockBox;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.BlockPos.Mutable;
 import net.minecraft.util.math.ChunkPos;
-import net.minecraft.util.math.MathHelper;
 import net.minecraft.world.Heightmap;
 import net.minecraft.world.Heightmap.Type;
 import net.minecraft.world.StructureWorldAccess;
@@ -26,10 +22,13 @@ import net.minecraft.world.gen.chunk.ChunkGenerator;
 import ru.betterend.noise.OpenSimplexNoise;
 import ru.betterend.registry.EndBiomes;
 import ru.betterend.registry.EndStructures;
+import ru.betterend.util.ChunkWriter;
 import ru.betterend.util.MHelper;
+import ru.betterend.world.generator.GenerationProfiler;
+import ru.betterend.world.structures.Heightfield;
+import ru.betterend.world.structures.Heightfield.ColumnHeight;
 
 public class PaintedMountainPiece extends BasePiece {
-	private Map<Integer, Integer> heightmap = Maps.newHashMap();
 	private OpenSimplexNoise noise1;
 	private OpenSimplexNoise noise2;
 	private BlockPos center;
@@ -40,6 +39,7 @@ public class PaintedMountainPiece extends BasePiece {
 	private BlockState[] slises;
 	private int seed1;
 	private int seed2;
+	private Heightfield heightfield;
 	
 	public PaintedMountainPiece(BlockPos center, float radius, float height, Random random, Biome biome, BlockState[] slises) {
 		super(EndStructures.PAINTED_MOUNTAIN_PIECE, random.nextInt());
@@ -97,10 +97,13 @@ public class PaintedMountainPiece extends BasePiece {
 
 	@Override
 	public boolean generate(StructureWorldAccess world, StructureAccessor arg, ChunkGenerator chunkGenerator, Random random, BlockBox blockBox, ChunkPos chunkPos, BlockPos blockPos) {
+		GenerationProfiler.Scope scope = GenerationProfiler.begin(getClass());
 		int sx = chunkPos.getStartX();
 		int sz = chunkPos.getStartZ();
 		Mutable pos = new Mutable();
 		Chunk chunk = world.getChunk(chunkPos.x, chunkPos.z);
+		ChunkWriter writer = new ChunkWriter(chunk);
+		ColumnHeight heights = (x, z) -> getHeight(world, x, z);
 		Heightmap map = chunk.getHeightmap(Type.WORLD_SURFACE);
 		Heightmap map2 = chunk.getHeightmap(Type.WORLD_SURFACE_WG);
 		for (int x = 0; x < 16; x++) {
@@ -124,7 +127,7 @@ public class PaintedMountainPiece extends BasePiece {
 					minY = pos.getY();
 					minY = Math.max(minY, map2.get(x, z));
 					if (minY > 56) {
-						float maxY = dist * height * getHeightClamp(world, 8, px, pz);
+						float maxY = dist * height * heightfield.getHeightClamp(px, pz, heights);
 						if (maxY > 0) {
 							maxY *= (float) noise1.eval(px * 0.05, pz * 0.05) * 0.3F + 0.7F;
 							maxY *= (float) noise1.eval(px * 0.1, pz * 0.1) * 0.1F + 0.9F;
@@ -133,71 +136,43 @@ public class PaintedMountainPiece extends BasePiece {
 							for (int y = minY - 1; y < maxY; y++) {
 								pos.setY(y);
 								int index = MHelper.floor((y + offset) * 0.65F) % slises.length;
-								chunk.setBlockState(pos, slises[index], false);
+								writer.setBlockState(pos, slises[index]);
 							}
 						}
 					}
 				}
 			}
 		}
+		writer.finish();
 		
+		heightfield.onChunkGenerated();
+		GenerationProfiler.end(scope);
 		return true;
 	}
 	
-	private int getHeight(StructureWorldAccess world, BlockPos pos) {
-		int p = ((pos.getX() & 2047) << 11) | (pos.getZ() & 2047);
-		int h = heightmap.getOrDefault(p, Integer.MIN_VALUE);
-		if (h > Integer.MIN_VALUE) {
-			return h;
-		}
-		
-		if (!EndBiomes.getBiomeID(world.getBiome(pos)).equals(biomeID)) {
-			heightmap.put(p, -4);
+	private int getHeight(StructureWorldAccess world, int x, int z) {
+		if (!EndBiomes.getBiomeID(world.getBiome(new BlockPos(x, 0, z))).equals(biomeID)) {
 			return -4;
 		}
-		h = world.getTopY(Type.WORLD_SURFACE_WG, pos.getX(), pos.getZ());
+		int h = world.getTopY(Type.WORLD_SURFACE_WG, x, z);
 		if (h < 57) {
-			heightmap.put(p, -4);
 			return -4;
 		}
-		h = MHelper.floor(noise2.eval(pos.getX() * 0.005, pos.getZ() * 0.005) * noise2.eval(pos.getX() * 0.001, pos.getZ() * 0.001) * 8 + 8);
+		h = MHelper.floor(noise2.eval(x * 0.005, z * 0.005) * noise2.eval(x * 0.001, z * 0.001) * 8 + 8);
 		
 		if (h < 0) {
-			heightmap.put(p, 0);
 			return 0;
 		}
 		
-		heightmap.put(p, h);
-		
 		return h;
 	}
 	
-	private float getHeightClamp(StructureWorldAccess world, int radius, int posX, int posZ) {
-		Mutable mut = new Mutable();
-		float height = 0;
-		float max = 0;
-		for (int x = -radius; x <= radius; x++) {
-			mut.setX(posX + x);
-			int x2 = x * x;
-			for (int z = -radius; z <= radius; z++) {
-				mut.setZ(posZ + z);
-				int z2 = z * z;
-				float mult = 1 - (float) Math.sqrt(x2 + z2) / radius;
-				if (mult > 0) {
-					max += mult;
-					height += getHeight(world, mut) * mult;
-				}
-			}
-		}
-		height /= max;
-		return MathHelper.clamp(height / radius, 0, 1);
-	}
-	
 	private void makeBoundingBox() {
 		int minX = MHelper.floor(center.getX() - radius);
 		int minZ = MHelper.floor(center.getZ() - radius);
 		int maxX = MHelper.floor(center.getX() + radius + 1);
 		int maxZ = MHelper.floor(center.getZ() + radius + 1);
 		this.boundingBox = new BlockBox(minX, minZ, maxX, maxZ);
+		this.heightfield = new Heightfield(boundingBox, 8);
 	}
 }
@@ -1,47 +1,154 @@
 package ru.betterend.world.structures.piece;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.Random;
 import java.util.function.Consumer;
 
 import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.NbtHelper;
+import net.minecraft.nbt.NbtIo;
 import net.minecraft.structure.StructureManager;
 import net.minecraft.util.math.BlockBox;
+import net.minecraft.util.Identifier;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Box;
 import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.util.registry.Registry;
 import net.minecraft.world.StructureWorldAccess;
 import net.minecraft.world.gen.StructureAccessor;
 import net.minecraft.world.gen.chunk.ChunkGenerator;
+import net.minecraft.world.gen.feature.StructureFeature;
+import ru.betterend.BetterEnd;
 import ru.betterend.registry.EndStructures;
+import ru.betterend.util.sdf.SDF;
+import ru.betterend.world.generator.GenerationProfiler;
 import ru.betterend.world.structures.StructureWorld;
+import ru.betterend.world.structures.features.SDFStructureFeature;
 
 public class VoxelPiece extends BasePiece {
+	/**
+	 * Blocks around chunk which are evaluated by lazy pieces for post-processing of chunk border blocks.
+	 */
+	public static final int CHUNK_PADDING = 2;
 	private StructureWorld world;
+	private Identifier feature;
+	private BlockPos origin;
+	private long seed;
 	
 	public VoxelPiece(Consumer<StructureWorld> function, int id) {
 		super(EndStructures.VOXEL_PIECE, id);
 		world = new StructureWorld();
 		function.accept(world);
 		this.boundingBox = world.getBounds();
+		if (BetterEnd.LOGGER.isDebugEnabled()) {
+			BetterEnd.LOGGER.debug("Voxel piece {}: {} blocks, {} bytes in memory, {} bytes of NBT", boundingBox, world.getBlockCount(), world.getMemorySize(), getNbtSize(world.toBNT()));
+		}
+	}
+
+	/**
+	 * Lazy piece, stores only feature, origin and seed. Blocks are evaluated for each chunk in {@link #generate}
+	 * inside of finite SDF bounding box (relative to origin), see {@link SDFStructureFeature#setLazyPieces(boolean)}
+	 * for differences with eager pieces.
+	 */
+	public VoxelPiece(SDFStructureFeature feature, BlockPos origin, long seed, Box box, int id) {
+		super(EndStructures.VOXEL_PIECE, id);
+		if (!isFinite(box)) {
+			throw new IllegalArgumentException("Lazy voxel piece requires finite bounding box");
+		}
+		this.feature = Registry.STRUCTURE_FEATURE.getId(feature);
+		this.origin = origin;
+		this.seed = seed;
+		this.boundingBox = new BlockBox(
+			MathHelper.floor(box.minX) + origin.getX() - 1,
+			MathHelper.floor(box.minY) + origin.getY() - 1,
+			MathHelper.floor(box.minZ) + origin.getZ() - 1,
+			MathHelper.ceil(box.maxX) + origin.getX() + 1,
+			MathHelper.ceil(box.maxY) + origin.getY() + 1,
+			MathHelper.ceil(box.maxZ) + origin.getZ() + 1
+		);
+	}
+	
+	public static boolean isFinite(Box box) {
+		return !Double.isInfinite(box.minX) && !Double.isInfinite(box.minY) && !Double.isInfinite(box.minZ) && !Double.isInfinite(box.maxX) && !Double.isInfinite(box.maxY) && !Double.isInfinite(box.maxZ);
 	}
 
 	public VoxelPiece(StructureManager manager, CompoundTag tag) {
 		super(EndStructures.VOXEL_PIECE, tag);
-		this.boundingBox = world.getBounds();
+		if (world != null) {
+			this.boundingBox = world.getBounds();
+		}
 	}
 
 	@Override
 	protected void toNbt(CompoundTag tag) {
-		tag.put("world", world.toBNT());
+		if (world != null) {
+			tag.put("world", world.toBNT());
+		}
+		else {
+			tag.putString("feature", feature.toString());
+			tag.put("origin", NbtHelper.fromBlockPos(origin));
+			tag.putLong("seed", seed);
+		}
 	}
 
 	@Override
 	protected void fromNbt(CompoundTag tag) {
-		world = new StructureWorld(tag.getCompound("world"));
+		if (tag.contains("world")) {
+			world = new StructureWorld(tag.getCompound("world"));
+		}
+		else {
+			feature = new Identifier(tag.getString("feature"));
+			origin = NbtHelper.toBlockPos(tag.getCompound("origin"));
+			seed = tag.getLong("seed");
+		}
 	}
 
+	private static int getNbtSize(CompoundTag tag) {
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		try {
+			NbtIo.write(tag, new DataOutputStream(stream));
+		} catch (IOException ex) {
+			return -1;
+		}
+		return stream.size();
+	}
+	
 	@Override
 	public boolean generate(StructureWorldAccess world, StructureAccessor arg, ChunkGenerator chunkGenerator, Random random, BlockBox blockBox, ChunkPos chunkPos, BlockPos blockPos) {
-		this.world.placeChunk(world, chunkPos);
+		GenerationProfiler.Scope scope = GenerationProfiler.begin(getClass());
+		boolean generated = generateChunk(world, chunkPos);
+		GenerationProfiler.end(scope);
+		return generated;
+	}
+	
+	private boolean generateChunk(StructureWorldAccess world, ChunkPos chunkPos) {
+		if (this.world != null) {
+			this.world.placeChunk(world, chunkPos);
+			return true;
+		}
+		
+		StructureFeature<?> structure = Registry.STRUCTURE_FEATURE.get(feature);
+		if (!(structure instanceof SDFStructureFeature)) {
+			return false;
+		}
+		
+		// Chunk slice is padded to keep post-processing of border blocks same as for the whole piece
+		int minX = Math.max(chunkPos.getStartX() - CHUNK_PADDING, boundingBox.minX) - origin.getX();
+		int minZ = Math.max(chunkPos.getStartZ() - CHUNK_PADDING, boundingBox.minZ) - origin.getZ();
+		int maxX = Math.min(chunkPos.getEndX() + CHUNK_PADDING, boundingBox.maxX) - origin.getX();
+		int maxZ = Math.min(chunkPos.getEndZ() + CHUNK_PADDING, boundingBox.maxZ) - origin.getZ();
+		if (minX > maxX || minZ > maxZ) {
+			return false;
+		}
+		
+		SDF sdf = ((SDFStructureFeature) structure).makeSDF(origin, seed);
+		Box box = new Box(minX, boundingBox.minY - origin.getY(), minZ, maxX, boundingBox.maxY - origin.getY(), maxZ);
+		StructureWorld slice = new StructureWorld();
+		sdf.fillArea(slice, origin, box);
+		slice.placeChunk(world, chunkPos);
 		return true;
 	}
 }
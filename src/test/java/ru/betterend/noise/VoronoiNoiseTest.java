@@ -0,0 +1,71 @@
+package ru.betterend.noise;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import ru.betterend.util.MHelper;
+
+public class VoronoiNoiseTest {
+	@Test
+	public void lcgMatchesRandom() {
+		VoronoiNoise noise = new VoronoiNoise(1234);
+		Random random = new Random(0);
+		for (int i = 0; i < 10000; i++) {
+			int seed = noise.getSeed(random.nextInt(), random.nextInt(), random.nextInt());
+			Random reference = new Random(seed);
+			long value = VoronoiNoise.initRandom(seed);
+			for (int j = 0; j < 3; j++) {
+				value = VoronoiNoise.nextRandom(value);
+				assertEquals(reference.nextFloat(), VoronoiNoise.getFloat(value), "Seed " + seed + ", float " + j);
+			}
+		}
+	}
+	
+	@Test
+	public void sampleMatchesRandom() {
+		VoronoiNoise noise = new VoronoiNoise(1234);
+		Random random = new Random(0);
+		for (int i = 0; i < 10000; i++) {
+			double x = random.nextDouble() * 2000 - 1000;
+			double y = random.nextDouble() * 2000 - 1000;
+			double z = random.nextDouble() * 2000 - 1000;
+			assertEquals(sample(noise, x, y, z), noise.sample(x, y, z));
+		}
+	}
+	
+	/**
+	 * Original implementation which seeds {@link Random} for each feature point.
+	 */
+	private static double sample(VoronoiNoise noise, double x, double y, double z) {
+		Random random = new Random();
+		int ix = MHelper.floor(x);
+		int iy = MHelper.floor(y);
+		int iz = MHelper.floor(z);
+		
+		float px = (float) (x - ix);
+		float py = (float) (y - iy);
+		float pz = (float) (z - iz);
+		
+		float d = 10;
+		
+		for (int pox = -1; pox < 2; pox++) {
+			for (int poy = -1; poy < 2; poy++) {
+				for (int poz = -1; poz < 2; poz++) {
+					random.setSeed(noise.getSeed(pox + ix, poy + iy, poz + iz));
+					float pointX = pox + random.nextFloat();
+					float pointY = poy + random.nextFloat();
+					float pointZ = poz + random.nextFloat();
+					float d2 = MHelper.lengthSqr(pointX - px, pointY - py, pointZ - pz);
+					if (d2 < d) {
+						d = d2;
+					}
+				}
+			}
+		}
+		
+		return Math.sqrt(d);
+	}
+}
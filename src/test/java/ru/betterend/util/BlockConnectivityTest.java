@@ -0,0 +1,136 @@
+package ru.betterend.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import net.minecraft.util.math.BlockBox;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Direction;
+
+public class BlockConnectivityTest {
+	@Test
+	public void matchesReferenceFloodFill() {
+		Random random = new Random(1234);
+		for (int i = 0; i < 200; i++) {
+			int x = random.nextInt(200) - 100;
+			int y = random.nextInt(200);
+			int z = random.nextInt(200) - 100;
+			BlockBox bounds = BlockBox.create(x, y, z, x + random.nextInt(24), y + random.nextInt(24), z + random.nextInt(24));
+			float solid = random.nextFloat();
+			float connector = random.nextFloat();
+			float terrain = random.nextFloat() * random.nextFloat() * 0.2F;
+			Map<BlockPos, Integer> flags = makeFlags(random, bounds, solid, connector, terrain);
+			
+			BlockConnectivity connectivity = new BlockConnectivity(bounds).load((pos) -> null, (state, pos) -> {
+				return flags.getOrDefault(pos, 0);
+			});
+			int[] floating = connectivity.findFloating();
+			assertArrayEquals(getIndices(connectivity, bounds, findFloating(flags, bounds)), floating, "Bounds " + bounds);
+			
+			BlockPos.Mutable pos = new BlockPos.Mutable();
+			for (int index: floating) {
+				connectivity.setPos(pos, index);
+				assertEquals(index, connectivity.getIndex(pos.getX(), pos.getY(), pos.getZ()));
+			}
+		}
+	}
+	
+	/**
+	 * Random flags for bounds and one block margin around them.
+	 */
+	private static Map<BlockPos, Integer> makeFlags(Random random, BlockBox bounds, float solid, float connector, float terrain) {
+		Map<BlockPos, Integer> flags = Maps.newHashMap();
+		for (int x = bounds.minX - 1; x <= bounds.maxX + 1; x++) {
+			for (int y = bounds.minY - 1; y <= bounds.maxY + 1; y++) {
+				for (int z = bounds.minZ - 1; z <= bounds.maxZ + 1; z++) {
+					int value = 0;
+					if (random.nextFloat() < solid) {
+						value |= BlockConnectivity.SOLID;
+					}
+					if (random.nextFloat() < connector) {
+						value |= BlockConnectivity.CONNECTOR;
+					}
+					if (random.nextFloat() < terrain) {
+						value |= BlockConnectivity.TERRAIN;
+					}
+					flags.put(new BlockPos(x, y, z), value);
+				}
+			}
+		}
+		return flags;
+	}
+	
+	/**
+	 * Reference flood fill over block positions: solid blocks in bounds next to terrain are connected, connected
+	 * connector blocks spread connection to adjacent solid blocks.
+	 */
+	private static Set<BlockPos> findFloating(Map<BlockPos, Integer> flags, BlockBox bounds) {
+		Set<BlockPos> solid = Sets.newHashSet();
+		Set<BlockPos> connected = Sets.newHashSet();
+		Queue<BlockPos> queue = new ArrayDeque<BlockPos>();
+		for (Map.Entry<BlockPos, Integer> entry: flags.entrySet()) {
+			BlockPos pos = entry.getKey();
+			if ((entry.getValue() & BlockConnectivity.SOLID) != 0 && bounds.contains(pos)) {
+				solid.add(pos);
+			}
+		}
+		for (BlockPos pos: solid) {
+			for (Direction dir: Direction.values()) {
+				if ((flags.getOrDefault(pos.offset(dir), 0) & BlockConnectivity.TERRAIN) != 0) {
+					connected.add(pos);
+					queue.add(pos);
+					break;
+				}
+			}
+		}
+		
+		if (connected.isEmpty()) {
+			return connected;
+		}
+		
+		while (!queue.isEmpty()) {
+			BlockPos pos = queue.poll();
+			if ((flags.get(pos) & BlockConnectivity.CONNECTOR) == 0) {
+				continue;
+			}
+			for (Direction dir: Direction.values()) {
+				BlockPos next = pos.offset(dir);
+				if (solid.contains(next) && connected.add(next)) {
+					queue.add(next);
+				}
+			}
+		}
+		
+		solid.removeAll(connected);
+		return solid;
+	}
+	
+	/**
+	 * Indices of positions in the order of {@link BlockConnectivity#findFloating()} (x, z, y).
+	 */
+	private static int[] getIndices(BlockConnectivity connectivity, BlockBox bounds, Set<BlockPos> positions) {
+		IntArrayList indices = new IntArrayList();
+		for (int x = bounds.minX; x <= bounds.maxX; x++) {
+			for (int z = bounds.minZ; z <= bounds.maxZ; z++) {
+				for (int y = bounds.minY; y <= bounds.maxY; y++) {
+					if (positions.contains(new BlockPos(x, y, z))) {
+						indices.add(connectivity.getIndex(x, y, z));
+					}
+				}
+			}
+		}
+		return indices.toIntArray();
+	}
+}
@@ -0,0 +1,161 @@
+package ru.betterend.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.Maps;
+
+import net.minecraft.Bootstrap;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.util.math.BlockBox;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.StructureWorldAccess;
+
+public class VoxelBufferTest {
+	private static final BlockState[] STATES = new BlockState[] {
+		Blocks.AIR.getDefaultState(),
+		Blocks.END_STONE.getDefaultState(),
+		Blocks.OBSIDIAN.getDefaultState(),
+		Blocks.PURPUR_BLOCK.getDefaultState(),
+		Blocks.WATER.getDefaultState()
+	};
+	
+	@BeforeAll
+	public static void bootstrap() {
+		Bootstrap.initialize();
+	}
+	
+	@Test
+	public void matchesWorldAccess() {
+		Random random = new Random(1234);
+		BlockBox box = BlockBox.create(-20, 240, 5, 20, 270, 40);
+		Map<BlockPos, BlockState> blocks = makeBlocks(random, box);
+		Map<BlockPos, BlockState> reference = Maps.newHashMap(blocks);
+		StructureWorldAccess world = makeWorld(blocks, true);
+		StructureWorldAccess plain = makeWorld(reference, true);
+		VoxelBuffer buffer = new VoxelBuffer(world, box);
+		
+		BlockPos.Mutable pos = new BlockPos.Mutable();
+		for (int i = 0; i < 100000; i++) {
+			pos.set(
+				random.nextInt(box.maxX - box.minX + 9) + box.minX - 4,
+				random.nextInt(box.maxY - box.minY + 9) + box.minY - 4,
+				random.nextInt(box.maxZ - box.minZ + 9) + box.minZ - 4
+			);
+			if (random.nextBoolean()) {
+				BlockState state = STATES[random.nextInt(STATES.length)];
+				buffer.setBlockState(pos, state);
+				BlocksHelper.setWithoutUpdate(plain, pos, state);
+			}
+			else {
+				assertEquals(plain.getBlockState(pos), buffer.getBlockState(pos), pos.toShortString());
+				assertEquals(plain.getBlockState(pos).isAir(), buffer.isAir(pos), pos.toShortString());
+			}
+		}
+		buffer.write();
+		assertEquals(reference, blocks);
+	}
+	
+	@Test
+	public void columnsMatchWorldAccess() {
+		Random random = new Random(1234);
+		BlockBox box = BlockBox.create(0, 0, 0, 47, 63, 47);
+		BlockBox bounds = BlockBox.create(1, 10, 1, 46, 63, 46);
+		Map<BlockPos, BlockState> blocks = makeBlocks(random, box);
+		Map<BlockPos, BlockState> reference = Maps.newHashMap(blocks);
+		StructureWorldAccess world = makeWorld(blocks, false);
+		StructureWorldAccess plain = makeWorld(reference, false);
+		VoxelBuffer buffer = new VoxelBuffer(world, box);
+		
+		buffer.forEachColumn(bounds, 1, (x, z) -> {
+			BlockPos.Mutable pos = new BlockPos.Mutable(x, 0, z);
+			int top = bounds.minY;
+			for (int y = bounds.minY; y <= bounds.maxY; y++) {
+				BlockState state = buffer.getBlockState(pos.setY(y));
+				if (!state.isAir()) {
+					buffer.setBlockState(pos.setY(y), STATES[0]);
+					buffer.setBlockState(pos.setY(top++), state);
+				}
+			}
+		});
+		
+		BlockPos.Mutable pos = new BlockPos.Mutable();
+		for (int x = bounds.minX; x <= bounds.maxX; x++) {
+			for (int z = bounds.minZ; z <= bounds.maxZ; z++) {
+				int top = bounds.minY;
+				for (int y = bounds.minY; y <= bounds.maxY; y++) {
+					BlockState state = plain.getBlockState(pos.set(x, y, z));
+					if (!state.isAir()) {
+						BlocksHelper.setWithoutUpdate(plain, pos, STATES[0]);
+						BlocksHelper.setWithoutUpdate(plain, pos.setY(top++), state);
+					}
+				}
+			}
+		}
+		
+		buffer.write();
+		assertEquals(reference, blocks);
+	}
+	
+	/**
+	 * Random blocks in box expanded by a few blocks, so reads and writes outside of the buffer hit stored blocks.
+	 */
+	private static Map<BlockPos, BlockState> makeBlocks(Random random, BlockBox box) {
+		Map<BlockPos, BlockState> blocks = Maps.newHashMap();
+		for (int x = box.minX - 4; x <= box.maxX + 4; x++) {
+			for (int z = box.minZ - 4; z <= box.maxZ + 4; z++) {
+				for (int y = Math.max(box.minY - 4, 0); y <= Math.min(box.maxY + 4, 255); y++) {
+					BlockState state = STATES[random.nextInt(STATES.length)];
+					if (!state.isAir()) {
+						blocks.put(new BlockPos(x, y, z), state);
+					}
+				}
+			}
+		}
+		return blocks;
+	}
+	
+	/**
+	 * Minimal world backed by a map. In sparse world chunks with odd X coordinate are reported as not loaded, so
+	 * buffer skips their columns and accesses them through the world. Blocks outside of world height are void air
+	 * and can't be set.
+	 */
+	private static StructureWorldAccess makeWorld(Map<BlockPos, BlockState> blocks, boolean sparse) {
+		return (StructureWorldAccess) Proxy.newProxyInstance(VoxelBufferTest.class.getClassLoader(), new Class<?>[] { StructureWorldAccess.class }, (proxy, method, args) -> {
+			switch (method.getName()) {
+				case "getBlockState": {
+					BlockPos pos = (BlockPos) args[0];
+					if (pos.getY() < 0 || pos.getY() > 255) {
+						return Blocks.VOID_AIR.getDefaultState();
+					}
+					return blocks.getOrDefault(pos, Blocks.AIR.getDefaultState());
+				}
+				case "setBlockState": {
+					BlockPos pos = ((BlockPos) args[0]).toImmutable();
+					BlockState state = (BlockState) args[1];
+					if (pos.getY() < 0 || pos.getY() > 255) {
+						return false;
+					}
+					if (state.isAir()) {
+						blocks.remove(pos);
+					}
+					else {
+						blocks.put(pos, state);
+					}
+					return true;
+				}
+				case "isChunkLoaded":
+					return !sparse || (((Integer) args[0]) & 1) == 0;
+				default:
+					throw new UnsupportedOperationException(method.getName());
+			}
+		});
+	}
+}
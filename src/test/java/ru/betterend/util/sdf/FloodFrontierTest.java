@@ -0,0 +1,105 @@
+package ru.betterend.util.sdf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Direction;
+
+public class FloodFrontierTest {
+	@Test
+	public void sphereOrderMatchesHashSet() {
+		for (int radius = 1; radius < 24; radius += 3) {
+			int r2 = radius * radius;
+			assertSameOrder((x, y, z) -> x * x + y * y * 2 + z * z < r2);
+		}
+	}
+	
+	@Test
+	public void holedShapeOrderMatchesHashSet() {
+		assertSameOrder((x, y, z) -> {
+			int d = x * x + y * y + z * z;
+			return d < 400 && (d < 4 || ((x * 73856093L ^ y * 19349663L ^ z * 83492791L) & 15) != 0);
+		});
+	}
+	
+	@Test
+	public void capacityMatchesHashMap() {
+		assertEquals(16, FloodFrontier.getCapacity(0));
+		assertEquals(16, FloodFrontier.getCapacity(12));
+		assertEquals(32, FloodFrontier.getCapacity(13));
+		assertEquals(64, FloodFrontier.getCapacity(48));
+		assertEquals(128, FloodFrontier.getCapacity(49));
+	}
+	
+	private static void assertSameOrder(Shape shape) {
+		assertEquals(fillHashSet(shape), fillFrontier(shape));
+	}
+	
+	/**
+	 * Flood fill of the original implementation, returns tested positions in order.
+	 */
+	private static List<BlockPos> fillHashSet(Shape shape) {
+		List<BlockPos> tested = Lists.newArrayList();
+		Set<BlockPos> blocks = Sets.newHashSet();
+		Set<BlockPos> ends = Sets.newHashSet();
+		Set<BlockPos> add = Sets.newHashSet();
+		ends.add(new BlockPos(0, 0, 0));
+		while (!ends.isEmpty()) {
+			for (BlockPos center: ends) {
+				for (Direction dir: Direction.values()) {
+					BlockPos pos = center.offset(dir);
+					if (!blocks.contains(pos)) {
+						tested.add(pos);
+						if (shape.contains(pos.getX(), pos.getY(), pos.getZ())) {
+							add.add(pos);
+						}
+					}
+				}
+			}
+			blocks.addAll(ends);
+			ends.clear();
+			ends.addAll(add);
+			add.clear();
+		}
+		return tested;
+	}
+	
+	private static List<BlockPos> fillFrontier(Shape shape) {
+		List<BlockPos> tested = Lists.newArrayList();
+		LongSet blocks = new LongOpenHashSet();
+		FloodFrontier ends = new FloodFrontier(BlockPos.asLong(0, 0, 0));
+		while (ends.size() > 0) {
+			for (int i = 0; i < ends.size(); i++) {
+				for (Direction dir: Direction.values()) {
+					long pos = BlockPos.offset(ends.get(i), dir);
+					if (!blocks.contains(pos)) {
+						tested.add(BlockPos.fromLong(pos));
+						if (shape.contains(BlockPos.unpackLongX(pos), BlockPos.unpackLongY(pos), BlockPos.unpackLongZ(pos))) {
+							ends.add(pos);
+						}
+					}
+				}
+			}
+			for (int i = 0; i < ends.size(); i++) {
+				blocks.add(ends.get(i));
+			}
+			ends.step();
+		}
+		return tested;
+	}
+	
+	@FunctionalInterface
+	private interface Shape {
+		boolean contains(int x, int y, int z);
+	}
+}
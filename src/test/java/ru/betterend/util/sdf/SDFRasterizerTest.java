@@ -0,0 +1,129 @@
+package ru.betterend.util.sdf;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import net.minecraft.Bootstrap;
+import net.minecraft.block.Blocks;
+import net.minecraft.client.util.math.Vector3f;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.util.math.BlockPos;
+import ru.betterend.util.MHelper;
+import ru.betterend.util.sdf.operator.SDFCoordModify;
+import ru.betterend.util.sdf.operator.SDFDisplacement;
+import ru.betterend.util.sdf.operator.SDFRotation;
+import ru.betterend.util.sdf.operator.SDFSmoothUnion;
+import ru.betterend.util.sdf.operator.SDFSubtraction;
+import ru.betterend.util.sdf.operator.SDFTranslate;
+import ru.betterend.util.sdf.operator.SDFUnion;
+import ru.betterend.util.sdf.primitive.SDFCapsule;
+import ru.betterend.util.sdf.primitive.SDFSphere;
+import ru.betterend.world.structures.StructureWorld;
+
+public class SDFRasterizerTest {
+	private static final BlockPos START = new BlockPos(-37, 64, 1029);
+	private static final long SEED = 1234;
+	
+	@BeforeAll
+	public static void bootstrap() {
+		Bootstrap.initialize();
+	}
+	
+	@Test
+	public void rasterTreeMatchesSequentialFill() throws IOException {
+		assertTrue(makeMask(makeSDF(new Random(SEED))) instanceof SDFRasterizer.Raster);
+		assertSameFill((random) -> makeSDF(random));
+	}
+	
+	@Test
+	public void rasterCompiledMatchesSequentialFill() throws IOException {
+		assertTrue(makeMask(makeSDF(new Random(SEED)).compile()) instanceof SDFRasterizer.Raster);
+		assertSameFill((random) -> makeSDF(random).compile());
+	}
+	
+	@Test
+	public void sectionsMatchSequentialFill() throws IOException {
+		assertTrue(makeMask(makeModifiedSDF(new Random(SEED))) instanceof SDFRasterizer.SectionMask);
+		assertSameFill((random) -> makeModifiedSDF(random));
+	}
+	
+	@Test
+	public void displacementIsNotDeterministic() {
+		SDF sdf = new SDFDisplacement().setFunction((pos) -> {
+			return (float) Math.sin(pos.getX() * 0.3F) * 2F;
+		}).setSource(makeSDF(new Random(SEED)));
+		assertFalse(sdf.isDeterministic());
+		assertFalse(sdf.compile().isDeterministic());
+		assertTrue(makeMask(sdf) == null);
+	}
+	
+	private static SDFRasterizer.Mask makeMask(SDF sdf) {
+		return SDFRasterizer.makeMask(sdf, START, sdf.getBoundingBox());
+	}
+	
+	/**
+	 * Structure written by rasterized fill must be byte-identical to the one written by sequential fill,
+	 * block placers and post process consume random values, so the order of their calls is checked too.
+	 */
+	private static void assertSameFill(Function<Random, SDF> factory) throws IOException {
+		StructureWorld sequential = new StructureWorld();
+		factory.apply(new Random(SEED)).fillRecursive(sequential, START, false);
+		StructureWorld raster = new StructureWorld();
+		factory.apply(new Random(SEED)).fillRecursive(raster, START, true);
+		assertTrue(sequential.getBlockCount() > 0);
+		assertArrayEquals(write(sequential), write(raster));
+	}
+	
+	private static byte[] write(StructureWorld world) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		NbtIo.write(world.toBNT(), new DataOutputStream(bytes));
+		return bytes.toByteArray();
+	}
+	
+	/**
+	 * Deterministic tree with box large enough for parallel raster and a part which is not connected to origin.
+	 */
+	private static SDF makeSDF(Random random) {
+		SDF body = new SDFSphere().setRadius(14).setBlock((pos) -> {
+			return random.nextBoolean() ? Blocks.STONE.getDefaultState() : Blocks.DIRT.getDefaultState();
+		});
+		SDF arm = new SDFCapsule().setRadius(4).setHeight(30).setBlock(Blocks.OAK_LOG);
+		arm = new SDFRotation().setRotation(Vector3f.POSITIVE_Z, 1.2F).setSource(arm);
+		SDF head = new SDFTranslate().setTranslate(20, 6, -12).setSource(new SDFSphere().setRadius(9).setBlock(Blocks.GLASS));
+		SDF hole = new SDFTranslate().setTranslate(0, 10, 0).setSource(new SDFSphere().setRadius(8).setBlock(Blocks.STONE));
+		SDF island = new SDFTranslate().setTranslate(-24, -10, 24).setSource(new SDFSphere().setRadius(5).setBlock(Blocks.SAND));
+		
+		SDF sdf = new SDFSmoothUnion().setRadius(4).setSourceA(new SDFUnion().setSourceA(body).setSourceB(arm)).setSourceB(head);
+		sdf = new SDFSubtraction().setSourceA(sdf).setSourceB(hole);
+		sdf = new SDFUnion().setSourceA(sdf).setSourceB(island);
+		return sdf.setPostProcess((info) -> {
+			if (info.getStateUp().isAir() && random.nextInt(3) == 0) {
+				return Blocks.GRASS_BLOCK.getDefaultState();
+			}
+			return info.getState();
+		});
+	}
+	
+	/**
+	 * Same tree with pure coordinate modifier (like giant mossy glowshroom cap), it has infinite box.
+	 */
+	private static SDF makeModifiedSDF(Random random) {
+		SDF sdf = new SDFCoordModify().setFunction((pos) -> {
+			float dist = MHelper.length(pos.getX(), pos.getZ());
+			pos.set(pos.getX(), pos.getY() + (float) Math.sin(pos.getX() * 0.2F) * dist * 0.3F - dist * 0.15F, pos.getZ());
+		}).setDeterministic(true).setSource(makeSDF(random));
+		return sdf.setPostProcess((info) -> {
+			return random.nextInt(4) == 0 ? Blocks.MOSSY_COBBLESTONE.getDefaultState() : info.getState();
+		});
+	}
+}
@@ -0,0 +1,109 @@
+package ru.betterend.world.generator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.Lists;
+
+public class ChanceTableTest {
+	private static final int SAMPLES = 1 << 20;
+	
+	@Test
+	public void sortedChancesMatchTree() {
+		Random random = new Random(19);
+		for (int i = 0; i < 500; i++) {
+			float[] chances = new float[1 + random.nextInt(40)];
+			float chance = 0;
+			for (int j = 0; j < chances.length; j++) {
+				// Zero weights make equal chances
+				chance += random.nextInt(4) == 0 ? 0 : random.nextFloat() * 10;
+				chances[j] = chance;
+			}
+			assertSameMapping(chances, random);
+		}
+	}
+	
+	@Test
+	public void unsortedChancesMatchTree() {
+		Random random = new Random(23);
+		for (int i = 0; i < 500; i++) {
+			float[] chances = new float[1 + random.nextInt(40)];
+			for (int j = 0; j < chances.length; j++) {
+				chances[j] = random.nextFloat() * 20 - 5;
+			}
+			assertSameMapping(chances, random);
+		}
+	}
+	
+	@Test
+	public void frequenciesMatchWeights() {
+		float[] weights = new float[] { 1, 0.5F, 3, 0, 0.25F, 2, 1, 0.1F, 4, 1.5F };
+		float[] chances = new float[weights.length];
+		float max = 0;
+		for (int i = 0; i < weights.length; i++) {
+			max += weights[i];
+			chances[i] = max;
+		}
+		
+		ChanceTable<Integer> table = new ChanceTable<Integer>(getValues(chances.length), chances);
+		int[] counts = new int[weights.length];
+		Random random = new Random(7);
+		for (int i = 0; i < SAMPLES; i++) {
+			counts[table.get(random.nextFloat() * max)]++;
+		}
+		
+		for (int i = 0; i < weights.length; i++) {
+			double expected = weights[i] / max;
+			double deviation = Math.sqrt(expected * (1 - expected) / SAMPLES);
+			assertEquals(expected, (double) counts[i] / SAMPLES, 5 * deviation + 1E-9, "Frequency of value " + i);
+		}
+	}
+	
+	private static void assertSameMapping(float[] chances, Random random) {
+		ChanceTable<Integer> table = new ChanceTable<Integer>(getValues(chances.length), chances);
+		float max = chances[chances.length - 1];
+		for (float chance: chances) {
+			assertSameIndex(chances, table, chance);
+			assertSameIndex(chances, table, Math.nextDown(chance));
+			assertSameIndex(chances, table, Math.nextUp(chance));
+		}
+		for (int i = 0; i < 200; i++) {
+			assertSameIndex(chances, table, random.nextFloat() * max);
+		}
+		assertSameIndex(chances, table, -1);
+		assertSameIndex(chances, table, max * 2 + 1);
+	}
+	
+	private static void assertSameIndex(float[] chances, ChanceTable<Integer> table, float value) {
+		assertEquals(getTreeIndex(chances, 0, chances.length, value), table.getIndex(value), "Value " + value);
+	}
+	
+	/**
+	 * Reference recursive search with the same splits as removed WeighTree.
+	 */
+	private static int getTreeIndex(float[] chances, int start, int size, float value) {
+		if (size == 1) {
+			return start;
+		}
+		else if (size == 2) {
+			return value < chances[start] ? start : start + 1;
+		}
+		int index = size >> 1;
+		if (value < chances[start + index]) {
+			return getTreeIndex(chances, start, index + 1, value);
+		}
+		return getTreeIndex(chances, start + index, size - index, value);
+	}
+	
+	private static List<Integer> getValues(int count) {
+		List<Integer> values = Lists.newArrayList();
+		for (int i = 0; i < count; i++) {
+			values.add(i);
+		}
+		return values;
+	}
+}